@@ -0,0 +1,91 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+public class ArrayTaskListModel extends TaskListModel {
+
+    private String[] rows = new String[16];
+    private int size;
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public String getElementAt(int index) {
+        if (index >= size) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        return rows[index];
+    }
+
+    @Override
+    public void add(int index, String row) {
+        if (index < 0 || index > size) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        ensureCapacity(size + 1);
+        System.arraycopy(rows, index, rows, index + 1, size - index);
+        rows[index] = row;
+        size++;
+        fireIntervalAdded(this, index, index);
+    }
+
+    @Override
+    public void addAll(Collection<String> chunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        int first = size;
+        ensureCapacity(size + chunk.size());
+        for (String row : chunk) {
+            rows[size++] = row;
+        }
+        fireIntervalAdded(this, first, size - 1);
+    }
+
+    @Override
+    public void set(int index, String row) {
+        if (index < 0 || index >= size) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        String old = rows[index];
+        rows[index] = row;
+        fireReplaced(index, old);
+    }
+
+    @Override
+    public void remove(int index) {
+        if (index < 0 || index >= size) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        String old = rows[index];
+        System.arraycopy(rows, index + 1, rows, index, size - index - 1);
+        rows[--size] = null;
+        fireRemoved(index, old);
+    }
+
+    @Override
+    public void clear() {
+        int last = size - 1;
+        if (last < 0) {
+            return;
+        }
+        Arrays.fill(rows, 0, size, null);
+        size = 0;
+        fireIntervalRemoved(this, 0, last);
+    }
+
+    @Override
+    public List<String> snapshot() {
+        return new ArrayList<>(Arrays.asList(rows).subList(0, size));
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > rows.length) {
+            rows = Arrays.copyOf(rows, Math.max(capacity, rows.length + (rows.length >> 1)));
+        }
+    }
+}
@@ -0,0 +1,428 @@
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class Bitmap {
+
+    private static final int ARRAY_MAX = 4096;
+    private static final int WORDS = 1024;
+
+    private int[] keys = new int[4];
+    private Object[] containers = new Object[4];
+    private int[] cardinalities = new int[4];
+    private int count;
+
+    public void add(int value) {
+        int k = slot(value >>> 16, true);
+        char low = (char) value;
+        Object c = containers[k];
+        if (c instanceof long[]) {
+            long[] words = (long[]) c;
+            long bit = 1L << low;
+            if ((words[low >>> 6] & bit) == 0) {
+                words[low >>> 6] |= bit;
+                cardinalities[k]++;
+            }
+            return;
+        }
+        char[] values = (char[]) c;
+        int card = cardinalities[k];
+        int at = Arrays.binarySearch(values, 0, card, low);
+        if (at >= 0) {
+            return;
+        }
+        at = -at - 1;
+        if (card == ARRAY_MAX) {
+            long[] words = toWords(values, card);
+            words[low >>> 6] |= 1L << low;
+            containers[k] = words;
+        } else {
+            if (card == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, card * 2));
+                containers[k] = values;
+            }
+            System.arraycopy(values, at, values, at + 1, card - at);
+            values[at] = low;
+        }
+        cardinalities[k]++;
+    }
+
+    public void remove(int value) {
+        int k = slot(value >>> 16, false);
+        if (k < 0) {
+            return;
+        }
+        char low = (char) value;
+        Object c = containers[k];
+        if (c instanceof long[]) {
+            long[] words = (long[]) c;
+            long bit = 1L << low;
+            if ((words[low >>> 6] & bit) != 0) {
+                words[low >>> 6] &= ~bit;
+                cardinalities[k]--;
+                shrink(k);
+            }
+        } else {
+            char[] values = (char[]) c;
+            int card = cardinalities[k];
+            int at = Arrays.binarySearch(values, 0, card, low);
+            if (at >= 0) {
+                System.arraycopy(values, at + 1, values, at, card - at - 1);
+                cardinalities[k]--;
+                shrink(k);
+            }
+        }
+    }
+
+    public boolean contains(int value) {
+        int k = slot(value >>> 16, false);
+        if (k < 0) {
+            return false;
+        }
+        char low = (char) value;
+        Object c = containers[k];
+        if (c instanceof long[]) {
+            return (((long[]) c)[low >>> 6] & (1L << low)) != 0;
+        }
+        return Arrays.binarySearch((char[]) c, 0, cardinalities[k], low) >= 0;
+    }
+
+    public int cardinality() {
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            total += cardinalities[i];
+        }
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public Bitmap and(Bitmap other) {
+        Bitmap result = new Bitmap();
+        int i = 0, j = 0;
+        while (i < count && j < other.count) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Object a = containers[i];
+                Object b = other.containers[j];
+                int ca = cardinalities[i];
+                int cb = other.cardinalities[j];
+                if (a instanceof char[] && b instanceof char[]) {
+                    char[] x = (char[]) a;
+                    char[] y = (char[]) b;
+                    char[] out = new char[Math.min(ca, cb)];
+                    int n = 0;
+                    for (int p = 0, q = 0; p < ca && q < cb; ) {
+                        if (x[p] < y[q]) {
+                            p++;
+                        } else if (x[p] > y[q]) {
+                            q++;
+                        } else {
+                            out[n++] = x[p++];
+                            q++;
+                        }
+                    }
+                    result.put(keys[i], out, n);
+                } else if (a instanceof char[] || b instanceof char[]) {
+                    boolean sparseA = a instanceof char[];
+                    result.put(keys[i], filter((char[]) (sparseA ? a : b), sparseA ? ca : cb, (long[]) (sparseA ? b : a), true), -1);
+                } else {
+                    long[] x = (long[]) a;
+                    long[] y = (long[]) b;
+                    long[] out = new long[WORDS];
+                    for (int w = 0; w < WORDS; w++) {
+                        out[w] = x[w] & y[w];
+                    }
+                    result.put(keys[i], out, -1);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    public Bitmap or(Bitmap other) {
+        Bitmap result = new Bitmap();
+        int i = 0, j = 0;
+        while (i < count || j < other.count) {
+            if (j >= other.count || (i < count && keys[i] < other.keys[j])) {
+                result.put(keys[i], copy(i), cardinalities[i]);
+                i++;
+            } else if (i >= count || keys[i] > other.keys[j]) {
+                result.put(other.keys[j], other.copy(j), other.cardinalities[j]);
+                j++;
+            } else {
+                Object a = containers[i];
+                Object b = other.containers[j];
+                int ca = cardinalities[i];
+                int cb = other.cardinalities[j];
+                if (a instanceof char[] && b instanceof char[] && ca + cb <= ARRAY_MAX) {
+                    char[] x = (char[]) a;
+                    char[] y = (char[]) b;
+                    char[] out = new char[ca + cb];
+                    int n = 0;
+                    int p = 0, q = 0;
+                    while (p < ca && q < cb) {
+                        if (x[p] < y[q]) {
+                            out[n++] = x[p++];
+                        } else if (x[p] > y[q]) {
+                            out[n++] = y[q++];
+                        } else {
+                            out[n++] = x[p++];
+                            q++;
+                        }
+                    }
+                    while (p < ca) {
+                        out[n++] = x[p++];
+                    }
+                    while (q < cb) {
+                        out[n++] = y[q++];
+                    }
+                    result.put(keys[i], out, n);
+                } else {
+                    long[] out = a instanceof long[] ? ((long[]) a).clone() : toWords((char[]) a, ca);
+                    if (b instanceof long[]) {
+                        long[] y = (long[]) b;
+                        for (int w = 0; w < WORDS; w++) {
+                            out[w] |= y[w];
+                        }
+                    } else {
+                        char[] y = (char[]) b;
+                        for (int v = 0; v < cb; v++) {
+                            out[y[v] >>> 6] |= 1L << y[v];
+                        }
+                    }
+                    result.put(keys[i], out, -1);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    public static Bitmap orAll(Collection<Bitmap> bitmaps) {
+        TreeMap<Integer, Integer> totals = new TreeMap<>();
+        for (Bitmap b : bitmaps) {
+            for (int i = 0; i < b.count; i++) {
+                totals.merge(b.keys[i], b.cardinalities[i], Integer::sum);
+            }
+        }
+        Bitmap result = new Bitmap();
+        for (Map.Entry<Integer, Integer> e : totals.entrySet()) {
+            int key = e.getKey();
+            if (e.getValue() <= ARRAY_MAX) {
+                char[] values = new char[e.getValue()];
+                int n = 0;
+                for (Bitmap b : bitmaps) {
+                    int k = b.slot(key, false);
+                    if (k >= 0) {
+                        System.arraycopy((char[]) b.containers[k], 0, values, n, b.cardinalities[k]);
+                        n += b.cardinalities[k];
+                    }
+                }
+                Arrays.sort(values);
+                int card = 0;
+                for (int v = 0; v < n; v++) {
+                    if (card == 0 || values[v] != values[card - 1]) {
+                        values[card++] = values[v];
+                    }
+                }
+                result.put(key, values, card);
+            } else {
+                long[] words = new long[WORDS];
+                for (Bitmap b : bitmaps) {
+                    int k = b.slot(key, false);
+                    if (k < 0) {
+                        continue;
+                    }
+                    Object c = b.containers[k];
+                    if (c instanceof long[]) {
+                        long[] src = (long[]) c;
+                        for (int w = 0; w < WORDS; w++) {
+                            words[w] |= src[w];
+                        }
+                    } else {
+                        char[] values = (char[]) c;
+                        for (int v = 0; v < b.cardinalities[k]; v++) {
+                            words[values[v] >>> 6] |= 1L << values[v];
+                        }
+                    }
+                }
+                result.put(key, words, -1);
+            }
+        }
+        return result;
+    }
+
+    public Bitmap andNot(Bitmap other) {
+        Bitmap result = new Bitmap();
+        int j = 0;
+        for (int i = 0; i < count; i++) {
+            while (j < other.count && other.keys[j] < keys[i]) {
+                j++;
+            }
+            if (j >= other.count || other.keys[j] != keys[i]) {
+                result.put(keys[i], copy(i), cardinalities[i]);
+                continue;
+            }
+            Object a = containers[i];
+            Object b = other.containers[j];
+            int ca = cardinalities[i];
+            int cb = other.cardinalities[j];
+            if (a instanceof char[] && b instanceof char[]) {
+                char[] x = (char[]) a;
+                char[] y = (char[]) b;
+                char[] out = new char[ca];
+                int n = 0;
+                for (int p = 0, q = 0; p < ca; ) {
+                    if (q >= cb || x[p] < y[q]) {
+                        out[n++] = x[p++];
+                    } else if (x[p] > y[q]) {
+                        q++;
+                    } else {
+                        p++;
+                        q++;
+                    }
+                }
+                result.put(keys[i], out, n);
+            } else if (a instanceof char[]) {
+                result.put(keys[i], filter((char[]) a, ca, (long[]) b, false), -1);
+            } else {
+                long[] out = ((long[]) a).clone();
+                if (b instanceof long[]) {
+                    long[] y = (long[]) b;
+                    for (int w = 0; w < WORDS; w++) {
+                        out[w] &= ~y[w];
+                    }
+                } else {
+                    char[] y = (char[]) b;
+                    for (int v = 0; v < cb; v++) {
+                        out[y[v] >>> 6] &= ~(1L << y[v]);
+                    }
+                }
+                result.put(keys[i], out, -1);
+            }
+        }
+        return result;
+    }
+
+    public int[] toArray() {
+        int[] out = new int[cardinality()];
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            int high = keys[i] << 16;
+            Object c = containers[i];
+            if (c instanceof long[]) {
+                long[] words = (long[]) c;
+                for (int w = 0; w < WORDS; w++) {
+                    long word = words[w];
+                    while (word != 0) {
+                        out[n++] = high | (w << 6) | Long.numberOfTrailingZeros(word);
+                        word &= word - 1;
+                    }
+                }
+            } else {
+                char[] values = (char[]) c;
+                for (int v = 0; v < cardinalities[i]; v++) {
+                    out[n++] = high | values[v];
+                }
+            }
+        }
+        return out;
+    }
+
+    private Object copy(int k) {
+        Object c = containers[k];
+        return c instanceof long[] ? ((long[]) c).clone() : Arrays.copyOf((char[]) c, cardinalities[k]);
+    }
+
+    private static char[] filter(char[] values, int card, long[] words, boolean keep) {
+        char[] out = new char[card];
+        int n = 0;
+        for (int v = 0; v < card; v++) {
+            if (((words[values[v] >>> 6] & (1L << values[v])) != 0) == keep) {
+                out[n++] = values[v];
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static long[] toWords(char[] values, int card) {
+        long[] words = new long[WORDS];
+        for (int i = 0; i < card; i++) {
+            words[values[i] >>> 6] |= 1L << values[i];
+        }
+        return words;
+    }
+
+    private void put(int key, Object container, int card) {
+        if (card < 0) {
+            card = 0;
+            if (container instanceof long[]) {
+                for (long w : (long[]) container) {
+                    card += Long.bitCount(w);
+                }
+            } else {
+                card = ((char[]) container).length;
+            }
+        }
+        if (card == 0) {
+            return;
+        }
+        int k = slot(key, true);
+        cardinalities[k] = card;
+        containers[k] = container;
+        shrink(k);
+    }
+
+    private void shrink(int k) {
+        int card = cardinalities[k];
+        if (card == 0) {
+            System.arraycopy(keys, k + 1, keys, k, count - k - 1);
+            System.arraycopy(containers, k + 1, containers, k, count - k - 1);
+            System.arraycopy(cardinalities, k + 1, cardinalities, k, count - k - 1);
+            containers[--count] = null;
+        } else if (card <= ARRAY_MAX && containers[k] instanceof long[]) {
+            long[] words = (long[]) containers[k];
+            char[] values = new char[card];
+            int n = 0;
+            for (int w = 0; w < WORDS; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    values[n++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            containers[k] = values;
+        }
+    }
+
+    private int slot(int key, boolean create) {
+        int at = Arrays.binarySearch(keys, 0, count, key);
+        if (at >= 0 || !create) {
+            return at;
+        }
+        at = -at - 1;
+        if (count == keys.length) {
+            keys = Arrays.copyOf(keys, count * 2);
+            containers = Arrays.copyOf(containers, count * 2);
+            cardinalities = Arrays.copyOf(cardinalities, count * 2);
+        }
+        System.arraycopy(keys, at, keys, at + 1, count - at);
+        System.arraycopy(containers, at, containers, at + 1, count - at);
+        System.arraycopy(cardinalities, at, cardinalities, at + 1, count - at);
+        keys[at] = key;
+        containers[at] = new char[4];
+        cardinalities[at] = 0;
+        count++;
+        return at;
+    }
+}
@@ -3,29 +3,130 @@ import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
 import java.awt.event.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.*;
 import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
-import java.util.Map;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class CalendarApp extends JFrame {
 
+    private static final String[] DAY_NAMES = {"Sun", "Mon", "Tue", "Wed", "Thu", "Fri", "Sat"};
+    private static final String[] REPEAT_CHOICES = {"Does not repeat", "Daily", "Weekly", "Monthly", "Yearly"};
+    private static final String[] SERIES_CHOICES = {"Keep series", "Skip this day", "Delete series"};
+    private static final String[] TIMED_CHOICES = {"Keep event", "Delete event"};
+    private static final String[] VIEW_CHOICES = {"Month", "Quarter", "Year"};
+    private static final int[] VIEW_MONTHS = {1, 3, 12};
+    private static final int MONTH_CACHE = 12;
+    private static final File SEARCH_FILE = new File("events.search");
+    private static final int SEARCH_SAVE_MILLIS = 2000;
+    private static final int SEARCH_LOAD_ATTEMPTS = 3;
+    private static final int SLOT_MINUTES = 30;
+    private static final int WORK_START = 8 * 60;
+    private static final int WORK_END = 18 * 60;
+    private static final String[] DAY_NUMBERS = new String[32];
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("MMMM yyyy");
+    private static final Font DAY_FONT = new Font("Segoe UI", Font.BOLD, 16);
+    private static final Color TODAY = new Color(231, 76, 60);
+    private static final Color EVENT_DAY = new Color(41, 128, 185);
+    private static final Color CONFLICT_DAY = new Color(230, 126, 34);
+    private static final Color DARK_CELL = new Color(50, 50, 50);
+    private static final Color DARK_HEADER = new Color(60, 60, 60);
+
+    static {
+        for (int i = 1; i < DAY_NUMBERS.length; i++) {
+            DAY_NUMBERS[i] = String.valueOf(i);
+        }
+    }
+
     private LocalDate currentMonth;
     private JPanel calendarPanel;
+    private JPanel viewPanel;
+    private YearView yearView;
+    private int viewMonths = 1;
+    private JComboBox<String> viewChoice;
     private JLabel monthLabel;
     private boolean darkMode = true;
-    private Map<LocalDate, String> events = new HashMap<>();
+    private EventStore store;
+    private EventIndex index;
+    private volatile SearchIndex search = new SearchIndex();
+    private volatile String indexedFingerprint;
+    private volatile boolean searchDirty;
+    private final javax.swing.Timer searchSave = new javax.swing.Timer(SEARCH_SAVE_MILLIS,
+            e -> new Thread(this::saveSearch, "calendar-search-save").start());
+    private JTextField searchField;
+    private long[] matches = new long[0];
+    private long lastMatch = Long.MIN_VALUE;
+    private RecurrenceSet recurrences;
+    private TimedEventSet timed;
+    private MonthModel shown;
+    private final Map<YearMonth, MonthModel> monthCache = new LinkedHashMap<YearMonth, MonthModel>(16, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry<YearMonth, MonthModel> eldest) {
+            return size() > MONTH_CACHE;
+        }
+    };
+    private final Set<YearMonth> prefetching = new HashSet<>();
+    private final ExecutorService prefetcher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "calendar-prefetch");
+        t.setDaemon(true);
+        return t;
+    });
+    private int cacheVersion;
+    private final JLabel[] dayNames = new JLabel[7];
+    private final JButton[] cells = new JButton[42];
+    private final LocalDate[] cellDates = new LocalDate[42];
+    private JButton importBtn;
+    private JButton exportBtn;
+    private JLabel statusLabel;
+    private SwingWorker<Integer, Integer> transfer;
+    private SwingWorker<Void, Void> searchLoad;
 
     public CalendarApp() {
         super("Calendar App");
 
         currentMonth = LocalDate.now().withDayOfMonth(1);
 
+        try {
+            store = new EventStore(new File("events"));
+            index = new EventIndex(store);
+            recurrences = new RecurrenceSet(new File("events.rules"), store);
+            timed = new TimedEventSet(new File("events.timed"), store);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        searchSave.setRepeats(false);
+
         setSize(700, 600);
         setLocationRelativeTo(null);
         setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
         setLayout(new BorderLayout(10, 10));
 
+        addWindowListener(new WindowAdapter() {
+            public void windowActivated(WindowEvent e) {
+                prefetcher.execute(CalendarApp.this::checkExternalChanges);
+            }
+
+            public void windowClosed(WindowEvent e) {
+                if (transfer != null) {
+                    transfer.cancel(false);
+                }
+                searchLoad.cancel(false);
+                prefetcher.shutdownNow();
+                searchSave.stop();
+                saveSearch();
+                try {
+                    store.close();
+                } catch (IOException ex) {
+                    ex.printStackTrace();
+                }
+            }
+        });
+
         JPanel header = new JPanel(new BorderLayout());
         header.setBorder(new EmptyBorder(10, 10, 10, 10));
         header.setBackground(new Color(30, 30, 30));
@@ -44,27 +145,74 @@ public class CalendarApp extends JFrame {
         header.add(monthLabel, BorderLayout.CENTER);
         header.add(nextBtn, BorderLayout.EAST);
 
+        searchField = new JTextField();
+        searchField.setFont(new Font("Segoe UI", Font.PLAIN, 16));
+        searchField.setToolTipText("Indexing events...");
+        searchField.setEnabled(false);
+        searchField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
+            public void insertUpdate(javax.swing.event.DocumentEvent e) {
+                runSearch();
+            }
+
+            public void removeUpdate(javax.swing.event.DocumentEvent e) {
+                runSearch();
+            }
+
+            public void changedUpdate(javax.swing.event.DocumentEvent e) {
+                runSearch();
+            }
+        });
+        searchField.addActionListener(e -> nextMatch());
+        JPanel searchRow = new JPanel(new BorderLayout());
+        searchRow.setBorder(new EmptyBorder(8, 0, 0, 0));
+        searchRow.setOpaque(false);
+        searchRow.add(searchField, BorderLayout.CENTER);
+        header.add(searchRow, BorderLayout.SOUTH);
+
         add(header, BorderLayout.NORTH);
 
         calendarPanel = new JPanel(new GridLayout(0, 7, 5, 5));
         calendarPanel.setBorder(new EmptyBorder(10, 10, 10, 10));
         calendarPanel.setBackground(new Color(40, 44, 52));
-        add(calendarPanel, BorderLayout.CENTER);
-
-        JButton toggleBtn = new JButton("Toggle Mode");
-        toggleBtn.setFont(new Font("Segoe UI", Font.BOLD, 16));
-        toggleBtn.setForeground(Color.WHITE);
-        toggleBtn.setBackground(new Color(70, 70, 70));
-        toggleBtn.setFocusPainted(false);
-        toggleBtn.setCursor(new Cursor(Cursor.HAND_CURSOR));
+        buildGrid();
+
+        yearView = new YearView(this::loadDensity, prefetcher, this::showMonth);
+        yearView.addMouseWheelListener(e -> changeMonth(e.getWheelRotation()));
+        viewPanel = new JPanel(new CardLayout());
+        viewPanel.add(calendarPanel, VIEW_CHOICES[0]);
+        viewPanel.add(yearView, VIEW_CHOICES[2]);
+        add(viewPanel, BorderLayout.CENTER);
+
+        JButton toggleBtn = createFooterButton("Toggle Mode");
         toggleBtn.addActionListener(e -> {
             darkMode = !darkMode;
             updateCalendar();
         });
-        add(toggleBtn, BorderLayout.SOUTH);
+        importBtn = createFooterButton("Import .ics");
+        importBtn.addActionListener(e -> importEvents());
+        exportBtn = createFooterButton("Export .ics");
+        exportBtn.addActionListener(e -> exportEvents());
+        JButton freeBtn = createFooterButton("Free Slot");
+        freeBtn.addActionListener(e -> showFreeSlot());
+        viewChoice = new JComboBox<>(VIEW_CHOICES);
+        viewChoice.setFont(new Font("Segoe UI", Font.BOLD, 16));
+        viewChoice.addActionListener(e -> setView(viewChoice.getSelectedIndex()));
+
+        statusLabel = new JLabel(" ", SwingConstants.CENTER);
+        JPanel buttons = new JPanel(new GridLayout(1, 5, 5, 5));
+        buttons.add(viewChoice);
+        buttons.add(importBtn);
+        buttons.add(exportBtn);
+        buttons.add(freeBtn);
+        buttons.add(toggleBtn);
+        JPanel footer = new JPanel(new BorderLayout());
+        footer.add(statusLabel, BorderLayout.NORTH);
+        footer.add(buttons, BorderLayout.CENTER);
+        add(footer, BorderLayout.SOUTH);
 
         updateCalendar();
         setVisible(true);
+        loadSearch();
     }
 
     private JButton createHeaderButton(String text) {
@@ -77,85 +225,604 @@ public class CalendarApp extends JFrame {
         return btn;
     }
 
+    private JButton createFooterButton(String text) {
+        JButton btn = new JButton(text);
+        btn.setFont(new Font("Segoe UI", Font.BOLD, 16));
+        btn.setForeground(Color.WHITE);
+        btn.setBackground(new Color(70, 70, 70));
+        btn.setFocusPainted(false);
+        btn.setCursor(new Cursor(Cursor.HAND_CURSOR));
+        return btn;
+    }
+
     private void changeMonth(int delta) {
-        currentMonth = currentMonth.plusMonths(delta);
+        currentMonth = currentMonth.plusMonths((long) delta * viewMonths);
         updateCalendar();
     }
 
-    private void updateCalendar() {
-        calendarPanel.removeAll();
+    private void setView(int choice) {
+        viewMonths = VIEW_MONTHS[choice];
+        ((CardLayout) viewPanel.getLayout()).show(viewPanel, VIEW_CHOICES[viewMonths == 1 ? 0 : 2]);
+        updateCalendar();
+    }
 
-        DateTimeFormatter fmt = DateTimeFormatter.ofPattern("MMMM yyyy");
-        monthLabel.setText(currentMonth.format(fmt));
+    private void showMonth(LocalDate date) {
+        currentMonth = date.withDayOfMonth(1);
+        viewChoice.setSelectedIndex(0);
+        updateCalendar();
+    }
 
-        String[] days = {"Sun", "Mon", "Tue", "Wed", "Thu", "Fri", "Sat"};
-        for (String day : days) {
-            JLabel lbl = new JLabel(day, SwingConstants.CENTER);
-            lbl.setFont(new Font("Segoe UI", Font.BOLD, 16));
-            lbl.setOpaque(true);
-            lbl.setBackground(darkMode ? new Color(60, 60, 60) : Color.LIGHT_GRAY);
-            lbl.setForeground(darkMode ? Color.WHITE : Color.BLACK);
-            calendarPanel.add(lbl);
+    private void saveDay(long day, String text) throws IOException {
+        String old = index.get(day);
+        store.put(day, text);
+        index.put(day, text);
+        search.update(day, old, text.isEmpty() ? null : text);
+    }
+
+    private String fingerprint() throws IOException {
+        File rules = new File("events.rules");
+        File timedFile = new File("events.timed");
+        return store.getVersion() + ":" + store.getLiveBytes()
+                + ":" + rules.length() + ":" + rules.lastModified()
+                + ":" + timedFile.length() + ":" + timedFile.lastModified();
+    }
+
+    private boolean beginEdit() throws IOException {
+        store.lock();
+        try {
+            return fingerprint().equals(indexedFingerprint);
+        } catch (IOException | RuntimeException e) {
+            store.unlock();
+            throw e;
+        }
+    }
+
+    private void endEdit(boolean indexed) {
+        try {
+            indexedFingerprint = indexed ? fingerprint() : null;
+        } catch (IOException e) {
+            indexedFingerprint = null;
+        } finally {
+            store.unlock();
         }
+        searchDirty = true;
+        SwingUtilities.invokeLater(searchSave::restart);
+    }
 
-        LocalDate first = currentMonth.withDayOfMonth(1);
-        int startDay = first.getDayOfWeek().getValue() % 7;
+    private void saveSearch() {
+        if (!searchDirty) {
+            return;
+        }
+        try {
+            store.lock();
+            try {
+                String current = fingerprint();
+                if (current.equals(indexedFingerprint)) {
+                    searchDirty = false;
+                    search.save(SEARCH_FILE, current);
+                }
+            } finally {
+                store.unlock();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void loadSearch() {
+        searchLoad = new SwingWorker<Void, Void>() {
+            protected Void doInBackground() throws IOException {
+                for (int attempt = 1; attempt < SEARCH_LOAD_ATTEMPTS && !isCancelled(); attempt++) {
+                    String before = refreshedFingerprint();
+                    SearchIndex loaded = SearchIndex.load(SEARCH_FILE, before);
+                    SearchIndex built = loaded != null ? loaded : buildSearch();
+                    store.lock();
+                    try {
+                        if (fingerprint().equals(before)) {
+                            publishSearch(built, before, loaded == null);
+                            return null;
+                        }
+                    } finally {
+                        store.unlock();
+                    }
+                }
+                if (isCancelled()) {
+                    return null;
+                }
+                store.lock();
+                try {
+                    String before = refreshedFingerprint();
+                    SearchIndex loaded = SearchIndex.load(SEARCH_FILE, before);
+                    publishSearch(loaded != null ? loaded : buildSearch(), before, loaded == null);
+                } finally {
+                    store.unlock();
+                }
+                return null;
+            }
+
+            protected void done() {
+                if (isCancelled()) {
+                    return;
+                }
+                try {
+                    get();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    searchField.setToolTipText("Search unavailable");
+                    return;
+                }
+                searchField.setToolTipText("Search events, Enter jumps to the next match");
+                searchField.setEnabled(true);
+                if (searchDirty) {
+                    searchSave.restart();
+                }
+            }
+        };
+        searchLoad.execute();
+    }
+
+    private String refreshedFingerprint() throws IOException {
+        store.lock();
+        try {
+            recurrences.refresh();
+            timed.refresh();
+            return fingerprint();
+        } finally {
+            store.unlock();
+        }
+    }
 
-        for (int i = 0; i < startDay; i++) {
-            calendarPanel.add(new JLabel(""));
+    private SearchIndex buildSearch() throws IOException {
+        SearchIndex built = new SearchIndex();
+        long first = store.firstDay();
+        long last = store.lastDay();
+        for (long from = first; from <= last; from += EventStore.RANGE_CHUNK) {
+            index.range(from, Math.min(last, from + EventStore.RANGE_CHUNK - 1), built::add);
+        }
+        for (RecurrenceRule rule : recurrences.snapshot()) {
+            built.add(rule.getStart(), rule.getText());
         }
+        timed.forEach(event -> built.add(event.getStartDay(), event.getText()));
+        return built;
+    }
 
-        int daysInMonth = currentMonth.lengthOfMonth();
-        LocalDate today = LocalDate.now();
+    private void publishSearch(SearchIndex built, String fingerprint, boolean dirty) {
+        search = built;
+        indexedFingerprint = fingerprint;
+        searchDirty = dirty;
+    }
+
+    private void runSearch() {
+        String query = searchField.getText().trim();
+        matches = query.isEmpty() ? new long[0] : search.search(query);
+        lastMatch = currentMonth.toEpochDay() - 1;
+        statusLabel.setText(query.isEmpty() ? " " : matches.length == 1 ? "1 match" : matches.length + " matches");
+    }
+
+    private void nextMatch() {
+        if (matches.length == 0) {
+            return;
+        }
+        int at = Arrays.binarySearch(matches, lastMatch + 1);
+        at = at < 0 ? -at - 1 : at;
+        if (at == matches.length) {
+            at = 0;
+        }
+        lastMatch = matches[at];
+        LocalDate date = LocalDate.ofEpochDay(lastMatch);
+        statusLabel.setText("Match " + (at + 1) + " of " + matches.length + ": " + date);
+        showMonth(date);
+    }
 
-        for (int day = 1; day <= daysInMonth; day++) {
-            LocalDate date = currentMonth.withDayOfMonth(day);
-            JButton dayBtn = new JButton(String.valueOf(day));
+    private void eventsChanged(long fromDay, long toDay) {
+        cacheVersion++;
+        monthCache.keySet().removeIf(month -> month.atDay(1).toEpochDay() <= toDay
+                && month.atEndOfMonth().toEpochDay() >= fromDay);
+        yearView.invalidateDensity();
+        updateCalendar();
+    }
 
+    private void checkExternalChanges() {
+        try {
+            long seen = store.getExternalChanges();
+            store.lock();
+            store.unlock();
+            boolean rules = recurrences.refresh();
+            boolean scheduled = timed.refresh();
+            if (rules || scheduled || store.getExternalChanges() != seen) {
+                SwingUtilities.invokeLater(() -> eventsChanged(Long.MIN_VALUE, Long.MAX_VALUE));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private MonthModel month(YearMonth month) {
+        MonthModel model = monthCache.get(month);
+        if (model == null) {
+            model = MonthModel.load(month, index, recurrences, timed);
+            monthCache.put(month, model);
+        }
+        return model;
+    }
+
+    private void prefetch(YearMonth month) {
+        if (monthCache.containsKey(month) || !prefetching.add(month)) {
+            return;
+        }
+        int version = cacheVersion;
+        prefetcher.execute(() -> {
+            MonthModel loaded = MonthModel.load(month, index, recurrences, timed);
+            SwingUtilities.invokeLater(() -> {
+                prefetching.remove(month);
+                if (version == cacheVersion) {
+                    monthCache.put(month, loaded);
+                }
+            });
+        });
+    }
+
+    private void buildGrid() {
+        for (int i = 0; i < dayNames.length; i++) {
+            JLabel lbl = new JLabel(DAY_NAMES[i], SwingConstants.CENTER);
+            lbl.setFont(DAY_FONT);
+            lbl.setOpaque(true);
+            dayNames[i] = lbl;
+            calendarPanel.add(lbl);
+        }
+
+        for (int i = 0; i < cells.length; i++) {
+            int cell = i;
+            JButton dayBtn = new JButton();
             dayBtn.setOpaque(true);
             dayBtn.setBorderPainted(false);
-            dayBtn.setFont(new Font("Segoe UI", Font.BOLD, 16));
-            dayBtn.setCursor(new Cursor(Cursor.HAND_CURSOR));
+            dayBtn.setFont(DAY_FONT);
+            dayBtn.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+            dayBtn.addActionListener(e -> editEvent(cellDates[cell]));
+            cells[i] = dayBtn;
+            calendarPanel.add(dayBtn);
+        }
+    }
+
+    private void editEvent(LocalDate date) {
+        if (date == null) {
+            return;
+        }
+        List<RecurrenceRule> repeating = shown.getOccurrences(date);
+        List<TimedEvent> scheduled = shown.getScheduled(date);
+        String current = shown.getEvent(date);
+
+        JTextField text = new JTextField(current == null ? "" : current, 24);
+        JComboBox<String> repeat = new JComboBox<>(REPEAT_CHOICES);
+        JSpinner every = new JSpinner(new SpinnerNumberModel(1, 1, 99, 1));
+        JTextField until = new JTextField();
+        JTextField time = new JTextField();
+
+        JPanel form = new JPanel(new GridLayout(0, 2, 5, 5));
+        form.add(new JLabel("Event"));
+        form.add(text);
+        form.add(new JLabel("Time (hh:mm-hh:mm)"));
+        form.add(time);
+        form.add(new JLabel("Repeat"));
+        form.add(repeat);
+        form.add(new JLabel("Every"));
+        form.add(every);
+        form.add(new JLabel("Until (yyyy-mm-dd)"));
+        form.add(until);
+        List<JComboBox<String>> seriesActions = new ArrayList<>();
+        for (RecurrenceRule rule : repeating) {
+            JComboBox<String> action = new JComboBox<>(SERIES_CHOICES);
+            form.add(new JLabel(rule.getText()));
+            form.add(action);
+            seriesActions.add(action);
+        }
+        List<JComboBox<String>> timedActions = new ArrayList<>();
+        for (TimedEvent event : scheduled) {
+            JComboBox<String> action = new JComboBox<>(TIMED_CHOICES);
+            form.add(new JLabel(event.toString()));
+            form.add(action);
+            timedActions.add(action);
+        }
+
+        int choice = JOptionPane.showConfirmDialog(this, form, "Add/Edit event for " + date,
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (choice != JOptionPane.OK_OPTION) {
+            return;
+        }
+
+        long changedFrom = date.toEpochDay();
+        long changedTo = date.toEpochDay();
+        try {
+            boolean indexed = beginEdit();
+            try {
+                for (int i = 0; i < repeating.size(); i++) {
+                    int action = seriesActions.get(i).getSelectedIndex();
+                    if (action == 1) {
+                        recurrences.skip(repeating.get(i), date.toEpochDay());
+                    } else if (action == 2) {
+                        recurrences.remove(repeating.get(i));
+                        search.remove(repeating.get(i).getStart(), repeating.get(i).getText());
+                        changedFrom = Math.min(changedFrom, repeating.get(i).getStart());
+                        changedTo = Math.max(changedTo, repeating.get(i).getUntil());
+                    }
+                }
+                for (int i = 0; i < scheduled.size(); i++) {
+                    if (timedActions.get(i).getSelectedIndex() == 1) {
+                        timed.remove(scheduled.get(i));
+                        search.remove(scheduled.get(i).getStartDay(), scheduled.get(i).getText());
+                        changedFrom = Math.min(changedFrom, scheduled.get(i).getStartDay());
+                        changedTo = Math.max(changedTo, scheduled.get(i).getEndDay());
+                    }
+                }
+                String event = text.getText().trim();
+                String span = time.getText().trim();
+                if (!span.isEmpty() && !event.isEmpty()) {
+                    String[] bounds = span.split("-", 2);
+                    if (bounds.length < 2) {
+                        throw new DateTimeParseException("Expected start-end", span, 0);
+                    }
+                    long start = TimedEvent.minuteOf(date.atTime(LocalTime.parse(bounds[0].trim())));
+                    long end = TimedEvent.minuteOf(date.atTime(LocalTime.parse(bounds[1].trim())));
+                    if (end <= start) {
+                        end += TimedEvent.MINUTES_PER_DAY;
+                    }
+                    timed.add(new TimedEvent(start, end, event));
+                    search.add(date.toEpochDay(), event);
+                    saveDay(date.toEpochDay(), "");
+                    changedTo = Math.max(changedTo, Math.floorDiv(end - 1, TimedEvent.MINUTES_PER_DAY));
+                } else if (repeat.getSelectedIndex() == 0 || event.isEmpty()) {
+                    saveDay(date.toEpochDay(), event);
+                } else {
+                    long end = until.getText().trim().isEmpty() ? Long.MAX_VALUE
+                            : LocalDate.parse(until.getText().trim()).toEpochDay();
+                    recurrences.add(new RecurrenceRule(date.toEpochDay(),
+                            RecurrenceRule.Frequency.values()[repeat.getSelectedIndex() - 1],
+                            (Integer) every.getValue(), end, event));
+                    search.add(date.toEpochDay(), event);
+                    saveDay(date.toEpochDay(), "");
+                    changedTo = Math.max(changedTo, end);
+                }
+            } finally {
+                endEdit(indexed);
+            }
+        } catch (IOException e) {
+            showError("Could not save event: " + e.getMessage());
+        } catch (DateTimeParseException e) {
+            showError("Bad date or time: " + e.getParsedString());
+        }
+        eventsChanged(changedFrom, changedTo);
+    }
+
+    private void updateCalendar() {
+        if (viewMonths > 1) {
+            LocalDate first = currentMonth.withMonth((currentMonth.getMonthValue() - 1) / viewMonths * viewMonths + 1);
+            monthLabel.setText(viewMonths == 12 ? String.valueOf(first.getYear())
+                    : "Q" + (first.getMonthValue() / 3 + 1) + " " + first.getYear());
+            yearView.setDarkMode(darkMode);
+            yearView.setRange(first, viewMonths);
+            return;
+        }
+        monthLabel.setText(currentMonth.format(MONTH_FORMAT));
+
+        for (JLabel lbl : dayNames) {
+            lbl.setBackground(darkMode ? DARK_HEADER : Color.LIGHT_GRAY);
+            lbl.setForeground(darkMode ? Color.WHITE : Color.BLACK);
+        }
 
+        YearMonth month = YearMonth.from(currentMonth);
+        MonthModel model = month(month);
+        shown = model;
+        LocalDate first = currentMonth.withDayOfMonth(1);
+        int startDay = model.getStartDay();
+        int daysInMonth = model.getLength();
+        LocalDate today = LocalDate.now();
+
+        for (int i = 0; i < cells.length; i++) {
+            JButton dayBtn = cells[i];
+            int day = i - startDay + 1;
+            if (day < 1 || day > daysInMonth) {
+                cellDates[i] = null;
+                dayBtn.setVisible(false);
+                continue;
+            }
+            LocalDate date = first.plusDays(day - 1);
+            cellDates[i] = date;
+            dayBtn.setText(DAY_NUMBERS[day]);
+            dayBtn.setVisible(true);
+
+            String event = model.getDescription(day);
             if (date.equals(today)) {
-                dayBtn.setBackground(new Color(231, 76, 60));
+                dayBtn.setBackground(TODAY);
                 dayBtn.setForeground(Color.WHITE);
-            } else if (events.containsKey(date)) {
-                dayBtn.setBackground(new Color(41, 128, 185));
+            } else if (model.isConflict(day)) {
+                dayBtn.setBackground(CONFLICT_DAY);
+                dayBtn.setForeground(Color.WHITE);
+                event = "Conflict: " + event;
+            } else if (event != null) {
+                dayBtn.setBackground(EVENT_DAY);
                 dayBtn.setForeground(Color.WHITE);
             } else {
-                dayBtn.setBackground(darkMode ? new Color(50, 50, 50) : Color.WHITE);
+                dayBtn.setBackground(darkMode ? DARK_CELL : Color.WHITE);
                 dayBtn.setForeground(darkMode ? Color.WHITE : Color.BLACK);
             }
+            dayBtn.setToolTipText(event);
+        }
 
-            dayBtn.addActionListener(e -> {
-                String existing = events.getOrDefault(date, "");
-                String event = JOptionPane.showInputDialog(CalendarApp.this,
-                        "Add/Edit event for " + date + ":", existing);
-                if (event != null) {
-                    if (event.isEmpty()) {
-                        events.remove(date);
-                    } else {
-                        events.put(date, event);
+        calendarPanel.repaint();
+        prefetch(month.minusMonths(1));
+        prefetch(month.plusMonths(1));
+    }
+
+    private void loadDensity(long from, long to, int[] counts) {
+        index.range(from, to, (day, text) -> {
+            int count = 1;
+            for (int at = text.indexOf(" · "); at >= 0; at = text.indexOf(" · ", at + 3)) {
+                count++;
+            }
+            counts[(int) (day - from)] += count;
+        });
+        recurrences.expand(from, to, (day, rule) -> counts[(int) (day - from)]++);
+        timed.overlapping(from * TimedEvent.MINUTES_PER_DAY, (to + 1) * TimedEvent.MINUTES_PER_DAY, event -> {
+            for (long day = Math.max(event.getStartDay(), from); day <= Math.min(event.getEndDay(), to); day++) {
+                counts[(int) (day - from)]++;
+            }
+        });
+    }
+
+    private void showFreeSlot() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate weekEnd = now.toLocalDate().plusDays(7 - now.getDayOfWeek().getValue() % 7);
+        long earliest = TimedEvent.minuteOf(now);
+        for (LocalDate date = now.toLocalDate(); date.isBefore(weekEnd); date = date.plusDays(1)) {
+            long dayStart = date.toEpochDay() * TimedEvent.MINUTES_PER_DAY;
+            long slot = timed.firstFree(Math.max(earliest, dayStart + WORK_START), dayStart + WORK_END, SLOT_MINUTES);
+            if (slot >= 0) {
+                LocalDateTime at = TimedEvent.timeOf(slot);
+                JOptionPane.showMessageDialog(this, "First free " + SLOT_MINUTES + "-minute slot this week: "
+                        + at.toLocalDate() + " " + at.toLocalTime(), "Calendar", JOptionPane.INFORMATION_MESSAGE);
+                return;
+            }
+        }
+        JOptionPane.showMessageDialog(this, "No free " + SLOT_MINUTES + "-minute slot left this week",
+                "Calendar", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    private JFileChooser icsChooser() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter("iCalendar", "ics", "ical"));
+        return chooser;
+    }
+
+    private void importEvents() {
+        if (transfer != null) {
+            transfer.cancel(false);
+            return;
+        }
+        JFileChooser chooser = icsChooser();
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+        long length = file.length();
+        transfer = new SwingWorker<Integer, Integer>() {
+            protected Integer doInBackground() throws Exception {
+                List<RecurrenceRule> allRules = new ArrayList<>();
+                List<TimedEvent> allTimed = new ArrayList<>();
+                try {
+                    return IcsCalendar.importEvents(file, (days, rules, scheduled) -> {
+                        boolean indexed = beginEdit();
+                        try {
+                            store.putAll(days, IcsCalendar::join);
+                            for (Map.Entry<Long, String> day : days.entrySet()) {
+                                search.update(day.getKey(), index.get(day.getKey()), day.getValue());
+                            }
+                            index.putAll(days);
+                        } finally {
+                            endEdit(indexed);
+                        }
+                        allRules.addAll(rules);
+                        allTimed.addAll(scheduled);
+                        publish(days.size());
+                    }, read -> setProgress(length == 0 ? 100 : (int) Math.min(100, read * 100 / length)), this::isCancelled);
+                } finally {
+                    if (!allRules.isEmpty() || !allTimed.isEmpty()) {
+                        boolean indexed = beginEdit();
+                        try {
+                            recurrences.addAll(allRules);
+                            for (RecurrenceRule rule : allRules) {
+                                search.add(rule.getStart(), rule.getText());
+                            }
+                            timed.addAll(allTimed);
+                            for (TimedEvent event : allTimed) {
+                                search.add(event.getStartDay(), event.getText());
+                            }
+                        } finally {
+                            endEdit(indexed);
+                        }
                     }
-                    updateCalendar();
                 }
-            });
+            }
 
-            dayBtn.addMouseListener(new MouseAdapter() {
-                @Override
-                public void mouseEntered(MouseEvent e) {
-                    if (events.containsKey(date)) {
-                        dayBtn.setToolTipText(events.get(date));
-                    }
+            protected void process(List<Integer> batches) {
+                eventsChanged(Long.MIN_VALUE, Long.MAX_VALUE);
+            }
+
+            protected void done() {
+                eventsChanged(Long.MIN_VALUE, Long.MAX_VALUE);
+                if (isCancelled()) {
+                    finishTransfer("Import cancelled");
+                    return;
                 }
-            });
+                try {
+                    finishTransfer("Imported " + get() + " events");
+                } catch (Exception e) {
+                    finishTransfer("Could not import events: " + failure(e));
+                }
+            }
+        };
+        startTransfer(importBtn, "Importing");
+    }
 
-            calendarPanel.add(dayBtn);
+    private void exportEvents() {
+        if (transfer != null) {
+            transfer.cancel(false);
+            return;
+        }
+        JFileChooser chooser = icsChooser();
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
         }
+        File file = chooser.getSelectedFile();
+        transfer = new SwingWorker<Integer, Integer>() {
+            protected Integer doInBackground() throws Exception {
+                return IcsCalendar.exportEvents(file, store, recurrences, timed,
+                        percent -> setProgress((int) Math.min(100, percent)), this::isCancelled);
+            }
 
-        calendarPanel.revalidate();
-        calendarPanel.repaint();
+            protected void done() {
+                if (isCancelled()) {
+                    finishTransfer("Export cancelled");
+                    return;
+                }
+                try {
+                    finishTransfer("Exported " + get() + " events");
+                } catch (Exception e) {
+                    finishTransfer("Could not export events: " + failure(e));
+                }
+            }
+        };
+        startTransfer(exportBtn, "Exporting");
+    }
+
+    private static String failure(Exception e) {
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        return cause.getMessage() != null ? cause.getMessage() : cause.toString();
+    }
+
+    private void startTransfer(JButton active, String label) {
+        importBtn.setEnabled(active == importBtn);
+        exportBtn.setEnabled(active == exportBtn);
+        active.setText("Cancel");
+        statusLabel.setText(label + "...");
+        transfer.addPropertyChangeListener(e -> {
+            if ("progress".equals(e.getPropertyName())) {
+                statusLabel.setText(label + "... " + e.getNewValue() + "%");
+            }
+        });
+        transfer.execute();
+    }
+
+    private void finishTransfer(String message) {
+        transfer = null;
+        importBtn.setText("Import .ics");
+        exportBtn.setText("Export .ics");
+        importBtn.setEnabled(true);
+        exportBtn.setEnabled(true);
+        statusLabel.setText(message);
+    }
+
+    private void showError(String message) {
+        JOptionPane.showMessageDialog(this, message, "Calendar", JOptionPane.ERROR_MESSAGE);
     }
 
     public static void main(String[] args) {
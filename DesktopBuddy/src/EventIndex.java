@@ -0,0 +1,250 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+
+public class EventIndex {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final int MIN_CAPACITY = 16;
+    private static final int MIN_COMPACT_GARBAGE = 64 * 1024;
+
+    private long[] keys;
+    private int[] offsets;
+    private int size;
+    private int mask;
+
+    private byte[] pool = new byte[4096];
+    private int poolSize;
+    private int garbage;
+
+    private long[] sorted = new long[0];
+    private boolean sortedValid = true;
+
+    private final EventStore store;
+    private final BitSet loaded = new BitSet();
+    private long seenChanges = -1;
+    private long firstDay;
+    private long lastDay = -1;
+    private long firstChunk;
+
+    public EventIndex(EventStore store) {
+        this.store = store;
+        allocate(MIN_CAPACITY);
+    }
+
+    private void ensure(long from, long to) {
+        try {
+            long changes = store.getExternalChanges();
+            if (changes != seenChanges) {
+                seenChanges = changes;
+                firstDay = store.firstDay();
+                lastDay = store.lastDay();
+                firstChunk = Math.floorDiv(firstDay, EventStore.RANGE_CHUNK);
+                loaded.clear();
+                allocate(MIN_CAPACITY);
+                size = 0;
+                poolSize = 0;
+                garbage = 0;
+                sortedValid = false;
+            }
+            long first = Math.max(from, firstDay);
+            long last = Math.min(to, lastDay);
+            if (first > last) {
+                return;
+            }
+            for (long chunk = Math.floorDiv(first, EventStore.RANGE_CHUNK); chunk <= Math.floorDiv(last, EventStore.RANGE_CHUNK); chunk++) {
+                int bit = (int) (chunk - firstChunk);
+                if (!loaded.get(bit)) {
+                    loaded.set(bit);
+                    long start = chunk * EventStore.RANGE_CHUNK;
+                    store.range(start, start + EventStore.RANGE_CHUNK - 1, this::insert);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        offsets = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private int slot(long day) {
+        long h = day * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private int find(long day) {
+        for (int i = slot(day); ; i = (i + 1) & mask) {
+            if (keys[i] == day) {
+                return i;
+            }
+            if (keys[i] == EMPTY) {
+                return -1;
+            }
+        }
+    }
+
+    public synchronized String get(long day) {
+        ensure(day, day);
+        int i = find(day);
+        return i < 0 ? null : text(offsets[i]);
+    }
+
+    public synchronized void put(long day, String text) {
+        ensure(day, day);
+        insert(day, text);
+    }
+
+    private void insert(long day, String text) {
+        if (text == null || text.isEmpty()) {
+            remove(day);
+            return;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        int i = find(day);
+        if (i < 0) {
+            if ((size + 1) * 4L > keys.length * 3L) {
+                rehash(keys.length * 2);
+            }
+            i = slot(day);
+            while (keys[i] != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = day;
+            size++;
+            sortedValid = false;
+        } else {
+            garbage += entryLength(offsets[i]);
+        }
+        offsets[i] = append(bytes);
+        if (garbage > MIN_COMPACT_GARBAGE && garbage > poolSize - garbage) {
+            compactPool();
+        }
+    }
+
+    public synchronized void putAll(Map<Long, String> days) {
+        for (Map.Entry<Long, String> e : days.entrySet()) {
+            put(e.getKey(), e.getValue());
+        }
+    }
+
+    public synchronized void remove(long day) {
+        ensure(day, day);
+        int i = find(day);
+        if (i < 0) {
+            return;
+        }
+        garbage += entryLength(offsets[i]);
+        size--;
+        sortedValid = false;
+        for (int j = (i + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+            int home = slot(keys[j]);
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                keys[i] = keys[j];
+                offsets[i] = offsets[j];
+                i = j;
+            }
+        }
+        keys[i] = EMPTY;
+    }
+
+    public synchronized void range(long from, long to, EventStore.DayConsumer out) {
+        ensure(from, to);
+        if (!sortedValid) {
+            sorted = new long[size];
+            int n = 0;
+            for (long key : keys) {
+                if (key != EMPTY) {
+                    sorted[n++] = key;
+                }
+            }
+            Arrays.sort(sorted);
+            sortedValid = true;
+        }
+        int at = Arrays.binarySearch(sorted, from);
+        for (int k = at < 0 ? -at - 1 : at; k < sorted.length && sorted[k] <= to; k++) {
+            out.accept(sorted[k], text(offsets[find(sorted[k])]));
+        }
+    }
+
+    private String text(int offset) {
+        int length = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = pool[offset++];
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return new String(pool, offset, length, StandardCharsets.UTF_8);
+    }
+
+    private int entryLength(int offset) {
+        int length = 0;
+        int shift = 0;
+        int start = offset;
+        byte b;
+        do {
+            b = pool[offset++];
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return offset - start + length;
+    }
+
+    private int append(byte[] bytes) {
+        int needed = bytes.length + 5;
+        if (poolSize + needed > pool.length) {
+            pool = Arrays.copyOf(pool, Math.max(pool.length + (pool.length >> 1), poolSize + needed));
+        }
+        int offset = poolSize;
+        int length = bytes.length;
+        while (length >= 0x80) {
+            pool[poolSize++] = (byte) (length | 0x80);
+            length >>>= 7;
+        }
+        pool[poolSize++] = (byte) length;
+        System.arraycopy(bytes, 0, pool, poolSize, bytes.length);
+        poolSize += bytes.length;
+        return offset;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldOffsets = offsets;
+        allocate(capacity);
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != EMPTY) {
+                int i = slot(oldKeys[j]);
+                while (keys[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                offsets[i] = oldOffsets[j];
+            }
+        }
+    }
+
+    private void compactPool() {
+        byte[] compacted = new byte[Math.max(4096, (poolSize - garbage) * 2)];
+        int at = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                int length = entryLength(offsets[i]);
+                System.arraycopy(pool, offsets[i], compacted, at, length);
+                offsets[i] = at;
+                at += length;
+            }
+        }
+        pool = compacted;
+        poolSize = at;
+        garbage = 0;
+    }
+}
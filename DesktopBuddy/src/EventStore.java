@@ -0,0 +1,476 @@
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BinaryOperator;
+
+public class EventStore implements Closeable {
+
+    public interface DayConsumer {
+        void accept(long day, String text);
+    }
+
+    public static final int RANGE_CHUNK = 4096;
+
+    private static final int MAGIC = 0x45565331;
+    private static final int HEADER = 28;
+    private static final int SLOT = 12;
+    private static final int BASE_ALIGN = 4096;
+    private static final long MIN_COMPACT_GARBAGE = 64 * 1024;
+    private static final Map<Path, ReentrantLock> LOCKS = new ConcurrentHashMap<>();
+
+    private final Path idxPath;
+    private final Path datPath;
+    private final Path idxTmp;
+    private final Path datTmp;
+    private final Path idxRebase;
+    private final Path lockPath;
+    private final ReentrantLock localLock;
+
+    private FileChannel lockChannel;
+    private FileLock fileLock;
+    private long generation;
+    private long version;
+    private volatile long externalChanges;
+    private FileChannel idx;
+    private FileChannel dat;
+    private long base;
+    private long live;
+    private long garbage;
+    private boolean empty;
+
+    public EventStore(File file) throws IOException {
+        Path p = file.toPath().toAbsolutePath();
+        idxPath = sibling(p, ".idx");
+        datPath = sibling(p, ".dat");
+        idxTmp = sibling(p, ".idx.tmp");
+        datTmp = sibling(p, ".dat.tmp");
+        idxRebase = sibling(p, ".idx.new");
+        lockPath = sibling(p, ".lock");
+        localLock = LOCKS.computeIfAbsent(lockPath, k -> new ReentrantLock());
+        lock();
+        unlock();
+    }
+
+    private static Path sibling(Path p, String suffix) {
+        return p.resolveSibling(p.getFileName() + suffix);
+    }
+
+    private void recover() throws IOException {
+        Files.deleteIfExists(idxRebase);
+        if (Files.exists(datTmp)) {
+            Files.delete(datTmp);
+            Files.deleteIfExists(idxTmp);
+        } else if (Files.exists(idxTmp)) {
+            Files.move(idxTmp, idxPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    public void lock() throws IOException {
+        localLock.lock();
+        if (localLock.getHoldCount() > 1) {
+            return;
+        }
+        try {
+            lockChannel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            fileLock = lockChannel.lock();
+            ByteBuffer stored = read(lockChannel, 0, 2 * Long.BYTES);
+            long current = lockChannel.size() < Long.BYTES ? 0 : stored.getLong();
+            long storedVersion = lockChannel.size() < 2 * Long.BYTES ? 0 : stored.getLong();
+            if (storedVersion != version) {
+                version = storedVersion;
+                externalChanges++;
+            }
+            if (idx == null) {
+                recover();
+                open();
+            } else if (current != generation) {
+                idx.close();
+                dat.close();
+                open();
+            } else {
+                readHeader();
+            }
+            generation = current;
+        } catch (IOException | RuntimeException e) {
+            releaseFileLock();
+            localLock.unlock();
+            throw e;
+        }
+    }
+
+    public void unlock() {
+        if (localLock.getHoldCount() == 1) {
+            releaseFileLock();
+        }
+        localLock.unlock();
+    }
+
+    private void releaseFileLock() {
+        try {
+            if (fileLock != null) {
+                fileLock.release();
+            }
+            if (lockChannel != null) {
+                lockChannel.close();
+            }
+        } catch (IOException ignored) {
+        }
+        fileLock = null;
+        lockChannel = null;
+    }
+
+    private void replacingFiles() throws IOException {
+        ByteBuffer next = ByteBuffer.allocate(Long.BYTES);
+        next.putLong(++generation).flip();
+        write(lockChannel, 0, next);
+    }
+
+    private void open() throws IOException {
+        idx = FileChannel.open(idxPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        dat = FileChannel.open(datPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        readHeader();
+    }
+
+    private void readHeader() throws IOException {
+        empty = idx.size() < HEADER;
+        if (empty) {
+            return;
+        }
+        ByteBuffer header = read(idx, 0, HEADER);
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not an event index: " + idxPath);
+        }
+        base = header.getLong();
+        live = header.getLong();
+        garbage = header.getLong();
+    }
+
+    public String get(long day) throws IOException {
+        String[] found = new String[1];
+        range(day, day, (d, text) -> found[0] = text);
+        return found[0];
+    }
+
+    public void range(long from, long to, DayConsumer out) throws IOException {
+        lock();
+        try {
+            if (empty) {
+                return;
+            }
+            long first = Math.max(from, base);
+            long last = Math.min(to, base + (idx.size() - HEADER) / SLOT - 1);
+            if (first > last) {
+                return;
+            }
+            int n = (int) (last - first + 1);
+            ByteBuffer slots = read(idx, slotPosition(first), n * SLOT);
+
+            long lo = Long.MAX_VALUE, hi = 0, total = 0;
+            for (int i = 0; i < n; i++) {
+                long offset = slots.getLong(i * SLOT);
+                int length = slots.getInt(i * SLOT + 8);
+                if (length > 0) {
+                    lo = Math.min(lo, offset);
+                    hi = Math.max(hi, offset + length);
+                    total += length;
+                }
+            }
+            if (total == 0) {
+                return;
+            }
+
+            ByteBuffer block = hi - lo <= 4 * total ? read(dat, lo, (int) (hi - lo)) : null;
+            for (int i = 0; i < n; i++) {
+                long offset = slots.getLong(i * SLOT);
+                int length = slots.getInt(i * SLOT + 8);
+                if (length == 0) {
+                    continue;
+                }
+                String text;
+                if (block != null) {
+                    text = new String(block.array(), (int) (offset - lo), length, StandardCharsets.UTF_8);
+                } else {
+                    text = new String(read(dat, offset, length).array(), StandardCharsets.UTF_8);
+                }
+                out.accept(first + i, text);
+            }
+        } finally {
+            unlock();
+        }
+    }
+
+    public void put(long day, String text) throws IOException {
+        lock();
+        try {
+            if (text == null || text.isEmpty()) {
+                remove(day);
+                return;
+            }
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            if (empty) {
+                base = Math.floorDiv(day, BASE_ALIGN) * BASE_ALIGN;
+                empty = false;
+            } else if (day < base) {
+                rebase(Math.floorDiv(day, BASE_ALIGN) * BASE_ALIGN);
+            }
+            long offset = dat.size();
+            write(dat, offset, ByteBuffer.wrap(bytes));
+            setSlot(day, offset, bytes.length);
+            live += bytes.length;
+            writeHeader();
+        } finally {
+            unlock();
+        }
+    }
+
+    public void putAll(SortedMap<Long, String> batch, BinaryOperator<String> merge) throws IOException {
+        lock();
+        try {
+            if (batch.isEmpty()) {
+                return;
+            }
+            long firstKey = batch.firstKey();
+            if (!empty) {
+                long first = Math.max(firstKey, base);
+                long last = Math.min(batch.lastKey(), base + (idx.size() - HEADER) / SLOT - 1);
+                if (first <= last) {
+                    ByteBuffer slots = read(idx, slotPosition(first), (int) (last - first + 1) * SLOT);
+                    for (Map.Entry<Long, String> e : batch.subMap(first, last + 1).entrySet()) {
+                        int at = (int) (e.getKey() - first) * SLOT;
+                        int length = slots.getInt(at + 8);
+                        if (length > 0) {
+                            String text = new String(read(dat, slots.getLong(at), length).array(), StandardCharsets.UTF_8);
+                            e.setValue(merge.apply(text, e.getValue()));
+                        }
+                    }
+                }
+            }
+            if (empty) {
+                base = Math.floorDiv(firstKey, BASE_ALIGN) * BASE_ALIGN;
+                empty = false;
+            } else if (firstKey < base) {
+                rebase(Math.floorDiv(firstKey, BASE_ALIGN) * BASE_ALIGN);
+            }
+
+            long offset = dat.size();
+            ByteArrayOutputStream data = new ByteArrayOutputStream();
+            int[] lengths = new int[batch.size()];
+            int n = 0;
+            for (String text : batch.values()) {
+                byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+                data.write(bytes, 0, bytes.length);
+                lengths[n++] = bytes.length;
+            }
+            write(dat, offset, ByteBuffer.wrap(data.toByteArray()));
+            n = 0;
+            for (long day : batch.keySet()) {
+                setSlot(day, offset, lengths[n]);
+                offset += lengths[n];
+                live += lengths[n++];
+            }
+            writeHeader();
+        } finally {
+            unlock();
+        }
+    }
+
+    public long firstDay() throws IOException {
+        lock();
+        try {
+            return empty ? 0 : base;
+        } finally {
+            unlock();
+        }
+    }
+
+    public long lastDay() throws IOException {
+        lock();
+        try {
+            return empty ? -1 : base + (idx.size() - HEADER) / SLOT - 1;
+        } finally {
+            unlock();
+        }
+    }
+
+    public void remove(long day) throws IOException {
+        lock();
+        try {
+            if (empty || day < base) {
+                return;
+            }
+            if (setSlot(day, 0, 0) > 0) {
+                writeHeader();
+            }
+        } finally {
+            unlock();
+        }
+    }
+
+    private long slotPosition(long day) {
+        return HEADER + (day - base) * SLOT;
+    }
+
+    private int setSlot(long day, long offset, int length) throws IOException {
+        long position = slotPosition(day);
+        int old = 0;
+        if (position + SLOT <= idx.size()) {
+            old = read(idx, position + 8, 4).getInt();
+        }
+        if (old > 0) {
+            live -= old;
+            garbage += old;
+        }
+        if (old == 0 && length == 0) {
+            return 0;
+        }
+        ByteBuffer slot = ByteBuffer.allocate(SLOT);
+        slot.putLong(offset).putInt(length).flip();
+        write(idx, position, slot);
+        return Math.max(old, 1);
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        header.putInt(MAGIC).putLong(base).putLong(live).putLong(garbage).flip();
+        write(idx, 0, header);
+        ByteBuffer next = ByteBuffer.allocate(Long.BYTES);
+        next.putLong(++version).flip();
+        write(lockChannel, Long.BYTES, next);
+    }
+
+    private void rebase(long newBase) throws IOException {
+        int shift = (int) (base - newBase) * SLOT;
+        ByteBuffer slots = read(idx, HEADER, (int) Math.max(0, idx.size() - HEADER));
+        try (FileChannel out = FileChannel.open(idxRebase, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            header.putInt(MAGIC).putLong(newBase).putLong(live).putLong(garbage).flip();
+            write(out, 0, header);
+            write(out, HEADER, ByteBuffer.allocate(shift));
+            write(out, HEADER + shift, slots);
+            out.force(true);
+        }
+        replacingFiles();
+        idx.close();
+        Files.move(idxRebase, idxPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        idx = FileChannel.open(idxPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        base = newBase;
+    }
+
+    public long getLiveBytes() {
+        localLock.lock();
+        try {
+            return live;
+        } finally {
+            localLock.unlock();
+        }
+    }
+
+    public long getVersion() throws IOException {
+        lock();
+        try {
+            return version;
+        } finally {
+            unlock();
+        }
+    }
+
+    public long getExternalChanges() {
+        return externalChanges;
+    }
+
+    public boolean needsCompaction() throws IOException {
+        lock();
+        try {
+            return garbage > MIN_COMPACT_GARBAGE && garbage > live;
+        } finally {
+            unlock();
+        }
+    }
+
+    public void compact() throws IOException {
+        lock();
+        try {
+            if (empty) {
+                return;
+            }
+            long slotCount = (idx.size() - HEADER) / SLOT;
+            long newLive = 0;
+            try (FileChannel outDat = FileChannel.open(datTmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                 FileChannel outIdx = FileChannel.open(idxTmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                int chunk = BASE_ALIGN;
+                for (long start = 0; start < slotCount; start += chunk) {
+                    int n = (int) Math.min(chunk, slotCount - start);
+                    ByteBuffer slots = read(idx, HEADER + start * SLOT, n * SLOT);
+                    for (int i = 0; i < n; i++) {
+                        int length = slots.getInt(i * SLOT + 8);
+                        if (length > 0) {
+                            ByteBuffer text = read(dat, slots.getLong(i * SLOT), length);
+                            slots.putLong(i * SLOT, newLive);
+                            write(outDat, newLive, text);
+                            newLive += length;
+                        }
+                    }
+                    slots.rewind();
+                    write(outIdx, HEADER + start * SLOT, slots);
+                }
+                ByteBuffer header = ByteBuffer.allocate(HEADER);
+                header.putInt(MAGIC).putLong(base).putLong(newLive).putLong(0).flip();
+                write(outIdx, 0, header);
+                outDat.force(true);
+                outIdx.force(true);
+            }
+            replacingFiles();
+            idx.close();
+            dat.close();
+            Files.move(datTmp, datPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(idxTmp, idxPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            open();
+        } finally {
+            unlock();
+        }
+    }
+
+    private static ByteBuffer read(FileChannel ch, long position, int length) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(length);
+        while (buf.hasRemaining()) {
+            if (ch.read(buf, position + buf.position()) < 0) {
+                break;
+            }
+        }
+        buf.clear();
+        return buf;
+    }
+
+    private static void write(FileChannel ch, long position, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            ch.write(buf, position + buf.position());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock();
+        try {
+            if (needsCompaction()) {
+                compact();
+            }
+            idx.close();
+            dat.close();
+        } finally {
+            unlock();
+        }
+    }
+}
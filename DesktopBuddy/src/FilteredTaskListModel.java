@@ -0,0 +1,74 @@
+import javax.swing.AbstractListModel;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+
+public class FilteredTaskListModel extends AbstractListModel<String> implements ListDataListener {
+
+    private final TaskListModel base;
+    private int[] rows = new int[0];
+
+    public FilteredTaskListModel(TaskListModel base) {
+        this.base = base;
+    }
+
+    public void setRows(int[] rows) {
+        int old = this.rows.length;
+        this.rows = rows;
+        if (old > 0) {
+            fireIntervalRemoved(this, 0, old - 1);
+        }
+        if (rows.length > 0) {
+            fireIntervalAdded(this, 0, rows.length - 1);
+        }
+    }
+
+    public int baseIndex(int index) {
+        return rows[index];
+    }
+
+    @Override
+    public int getSize() {
+        return rows.length;
+    }
+
+    @Override
+    public String getElementAt(int index) {
+        return base.get(rows[index]);
+    }
+
+    @Override
+    public void intervalAdded(ListDataEvent e) {
+        int count = e.getIndex1() - e.getIndex0() + 1;
+        for (int i = 0; i < rows.length; i++) {
+            if (rows[i] >= e.getIndex0()) {
+                rows[i] += count;
+            }
+        }
+    }
+
+    @Override
+    public void intervalRemoved(ListDataEvent e) {
+        int count = e.getIndex1() - e.getIndex0() + 1;
+        int n = 0;
+        int removedAt = -1;
+        for (int i = 0; i < rows.length; i++) {
+            if (rows[i] > e.getIndex1()) {
+                rows[n++] = rows[i] - count;
+            } else if (rows[i] < e.getIndex0()) {
+                rows[n++] = rows[i];
+            } else if (removedAt < 0) {
+                removedAt = i;
+            }
+        }
+        if (n < rows.length) {
+            int old = rows.length;
+            rows = java.util.Arrays.copyOf(rows, n);
+            fireIntervalRemoved(this, removedAt, removedAt + old - n - 1);
+        }
+    }
+
+    @Override
+    public void contentsChanged(ListDataEvent e) {
+        fireContentsChanged(this, 0, Math.max(0, rows.length - 1));
+    }
+}
@@ -1,11 +1,15 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferStrategy;
+import java.awt.image.VolatileImage;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
-class FlappyBirdGame extends JPanel implements ActionListener, KeyListener {
+class FlappyBirdGame extends Canvas implements Runnable, KeyListener {
 
     private final int WIDTH = 400;
     private final int HEIGHT = 600;
@@ -16,43 +20,81 @@ class FlappyBirdGame extends JPanel implements ActionListener, KeyListener {
     private final double GRAVITY = 0.5;
     private final double JUMP = -8;
 
+    private static final long STEP_NANOS = TimeUnit.SECONDS.toNanos(1) / 60;
+    private static final long MAX_LAG_NANOS = STEP_NANOS * 10;
+    private static final long PAUSED_FRAME_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
     private int ballX = 100;
     private int ballY = HEIGHT / 2;
+    private int prevBallY = ballY;
     private double velocity = 0;
 
     private static class PipePair {
-        int x, gapY;
+        int x, prevX, gapY;
         boolean passed = false;
-        PipePair(int x, int gapY) { this.x = x; this.gapY = gapY; }
+        PipePair(int x, int gapY) { this.x = x; this.prevX = x; this.gapY = gapY; }
     }
     private final ArrayList<PipePair> pipes = new ArrayList<>();
     private final Random rand = new Random();
 
     private final ArrayList<Rectangle> clouds = new ArrayList<>();
+    private final ArrayList<Point> cloudPrev = new ArrayList<>();
 
     private boolean started = false;
     private boolean gameOver = false;
     private int score = 0;
-
-    private final Timer timer = new Timer(1000 / 60, this);
+    private String scoreText = "Score: 0";
+
+    private volatile boolean jumpRequested = false;
+    private volatile boolean running = true;
+    private final Thread loop = new Thread(this, "flappy-loop");
+    private final JFrame frame;
+    private VolatileImage background;
+
+    private final Color cloudColor = new Color(255, 255, 255, 200);
+    private final Color shadowColor = new Color(0, 0, 0, 50);
+    private final Color ballColor = new Color(255, 70, 70);
+    private final Color watermarkColor = new Color(255, 255, 255, 40);
+    private final GradientPaint pipePaint = new GradientPaint(0, 0, new Color(0, 200, 0), PIPE_WIDTH, 0, new Color(0, 120, 0));
+    private final Font scoreFont = new Font("MV Boli", Font.BOLD, 24);
+    private final Font startFont = new Font("MV Boli", Font.BOLD, 22);
+    private final Font bigFont = new Font("MV Boli", Font.BOLD, 80);
+    private final Font overFont = new Font("MV Boli", Font.BOLD, 32);
+    private final Font restartFont = new Font("MV Boli", Font.PLAIN, 20);
+    private final Font signatureFont = new Font("MV Boli", Font.PLAIN, 16);
+    private final Font langFont = new Font("MV Boli", Font.PLAIN, 14);
 
     public FlappyBirdGame() {
-        JFrame frame = new JFrame("Happy Ball");
+        frame = new JFrame("Happy Ball");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         frame.setSize(WIDTH, HEIGHT);
         frame.add(this);
         frame.setResizable(false);
         frame.setLocationRelativeTo(null);
+        frame.setIgnoreRepaint(true);
+        setIgnoreRepaint(true);
         frame.setVisible(true);
 
         frame.addKeyListener(this);
+        addKeyListener(this);
         setBackground(new Color(135, 206, 250));
+        frame.addWindowListener(new WindowAdapter() {
+            public void windowClosed(WindowEvent e) {
+                running = false;
+            }
+        });
 
-        for (int i = 0; i < 5; i++)
-            clouds.add(new Rectangle(rand.nextInt(WIDTH), rand.nextInt(200),
-                    60 + rand.nextInt(40), 30 + rand.nextInt(15)));
+        for (int i = 0; i < 5; i++) {
+            Rectangle c = new Rectangle(rand.nextInt(WIDTH), rand.nextInt(200),
+                    60 + rand.nextInt(40), 30 + rand.nextInt(15));
+            clouds.add(c);
+            cloudPrev.add(c.getLocation());
+        }
 
-        timer.start();
+        createBufferStrategy(2);
+        requestFocus();
+        loop.setDaemon(true);
+        loop.start();
     }
 
     private void addPipe(int x) {
@@ -64,8 +106,10 @@ class FlappyBirdGame extends JPanel implements ActionListener, KeyListener {
 
     private void resetGame() {
         ballY = HEIGHT / 2;
+        prevBallY = ballY;
         velocity = 0;
         score = 0;
+        scoreText = "Score: 0";
         pipes.clear();
 
         int startX = WIDTH + 100;
@@ -74,7 +118,6 @@ class FlappyBirdGame extends JPanel implements ActionListener, KeyListener {
 
         gameOver = false;
         started = true;
-        timer.start();
     }
 
     private void jump() {
@@ -84,139 +127,202 @@ class FlappyBirdGame extends JPanel implements ActionListener, KeyListener {
     }
 
     @Override
-    public void actionPerformed(ActionEvent e) {
-        
-        for (Rectangle c : clouds) {
+    public void run() {
+        long frameNanos = frameNanos();
+        long previous = System.nanoTime();
+        long nextFrame = previous;
+        long lag = 0;
+        while (running) {
+            long now = System.nanoTime();
+            lag += Math.min(now - previous, MAX_LAG_NANOS);
+            previous = now;
+            while (lag >= STEP_NANOS) {
+                update();
+                lag -= STEP_NANOS;
+            }
+            render(gameOver ? 1 : (double) lag / STEP_NANOS);
+
+            nextFrame += gameOver ? PAUSED_FRAME_NANOS : frameNanos;
+            long sleep = nextFrame - System.nanoTime();
+            if (sleep > 0) {
+                LockSupport.parkNanos(sleep);
+            } else {
+                nextFrame = System.nanoTime();
+            }
+        }
+    }
+
+    private long frameNanos() {
+        int refreshRate = frame.getGraphicsConfiguration().getDevice().getDisplayMode().getRefreshRate();
+        return TimeUnit.SECONDS.toNanos(1) / (refreshRate > 0 ? refreshRate : 60);
+    }
+
+    private void update() {
+        if (jumpRequested) {
+            jumpRequested = false;
+            jump();
+        }
+        if (gameOver) {
+            return;
+        }
+
+        for (int i = 0; i < clouds.size(); i++) {
+            Rectangle c = clouds.get(i);
+            cloudPrev.get(i).x = c.x;
             c.x -= 1;
-            if (c.x + c.width < 0) c.x = WIDTH + rand.nextInt(100);
+            if (c.x + c.width < 0) {
+                c.x = WIDTH + rand.nextInt(100);
+                cloudPrev.get(i).x = c.x;
+            }
         }
 
         if (started) {
 
-            for (PipePair p : pipes) p.x -= 3;
+            for (PipePair p : pipes) {
+                p.prevX = p.x;
+                p.x -= 3;
+            }
 
-           
             if (pipes.isEmpty() || pipes.get(pipes.size() - 1).x + PIPE_WIDTH < WIDTH - 160) {
                 int lastX = pipes.isEmpty() ? WIDTH : pipes.get(pipes.size() - 1).x;
                 addPipe(lastX + 160 + rand.nextInt(40));
             }
 
-           
             Iterator<PipePair> it = pipes.iterator();
             while (it.hasNext()) {
                 PipePair p = it.next();
                 if (p.x + PIPE_WIDTH < 0) it.remove();
             }
 
-           
+            prevBallY = ballY;
             velocity += GRAVITY;
             ballY += (int) velocity;
 
-           
-            Rectangle ballRect = new Rectangle(ballX, ballY, BALL_SIZE, BALL_SIZE);
             for (PipePair p : pipes) {
-                Rectangle top = new Rectangle(p.x, 0, PIPE_WIDTH, p.gapY);
-                Rectangle bottom = new Rectangle(p.x, p.gapY + GAP_HEIGHT, PIPE_WIDTH,
-                        HEIGHT - p.gapY - GAP_HEIGHT - GROUND_HEIGHT);
-                if (ballRect.intersects(top) || ballRect.intersects(bottom)) gameOver = true;
+                boolean inColumn = ballX < p.x + PIPE_WIDTH && ballX + BALL_SIZE > p.x;
+                if (inColumn && (ballY < p.gapY || ballY + BALL_SIZE > p.gapY + GAP_HEIGHT)) gameOver = true;
 
-                
                 if (!p.passed && p.x + PIPE_WIDTH < ballX) {
                     score++;
+                    scoreText = "Score: " + score;
                     p.passed = true;
                 }
             }
 
             if (ballY + BALL_SIZE > HEIGHT - GROUND_HEIGHT || ballY < 0) gameOver = true;
-            if (gameOver) timer.stop();
         }
+    }
 
-        repaint();
+    private void render(double alpha) {
+        BufferStrategy strategy = getBufferStrategy();
+        if (strategy == null) {
+            return;
+        }
+        do {
+            do {
+                Graphics2D g2 = (Graphics2D) strategy.getDrawGraphics();
+                draw(g2, alpha);
+                g2.dispose();
+            } while (strategy.contentsRestored());
+            strategy.show();
+        } while (strategy.contentsLost());
+        Toolkit.getDefaultToolkit().sync();
     }
 
-    @Override
-    protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        Graphics2D g2 = (Graphics2D) g;
+    private void drawBackground() {
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        if (background == null || background.validate(gc) == VolatileImage.IMAGE_INCOMPATIBLE) {
+            if (background != null) {
+                background.flush();
+            }
+            background = gc.createCompatibleVolatileImage(WIDTH, HEIGHT);
+        } else if (!background.contentsLost()) {
+            return;
+        }
+        do {
+            background.validate(gc);
+            Graphics2D g2 = background.createGraphics();
+            GradientPaint sky = new GradientPaint(0, 0, new Color(135, 206, 250),
+                                                  0, HEIGHT, new Color(176, 224, 230));
+            g2.setPaint(sky);
+            g2.fillRect(0, 0, WIDTH, HEIGHT);
+
+            g2.setColor(new Color(222, 184, 135));
+            g2.fillRect(0, HEIGHT - GROUND_HEIGHT, WIDTH, GROUND_HEIGHT);
+            g2.setColor(new Color(210, 170, 120));
+            for (int i = 0; i < WIDTH; i += 20)
+                g2.fillRect(i, HEIGHT - GROUND_HEIGHT + (i % 40 == 0 ? 0 : 5), 20, 10);
+            g2.dispose();
+        } while (background.contentsLost());
+    }
+
+    private static int lerp(int from, int to, double alpha) {
+        return (int) Math.round(from + (to - from) * alpha);
+    }
+
+    private void draw(Graphics2D g2, double alpha) {
+        drawBackground();
+        g2.drawImage(background, 0, 0, null);
         g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
-       
-        GradientPaint sky = new GradientPaint(0, 0, new Color(135, 206, 250),
-                                              0, HEIGHT, new Color(176, 224, 230));
-        g2.setPaint(sky);
-        g2.fillRect(0, 0, WIDTH, HEIGHT);
-
-        
-        g2.setColor(new Color(255, 255, 255, 200));
-        for (Rectangle c : clouds)
-            g2.fillRoundRect(c.x, c.y, c.width, c.height, 20, 20);
-
-        
-        g2.setColor(new Color(222, 184, 135));
-        g2.fillRect(0, HEIGHT - GROUND_HEIGHT, WIDTH, GROUND_HEIGHT);
-        g2.setColor(new Color(210, 170, 120));
-        for (int i = 0; i < WIDTH; i += 20)
-            g2.fillRect(i, HEIGHT - GROUND_HEIGHT + (i % 40 == 0 ? 0 : 5), 20, 10);
-
-        
+        g2.setColor(cloudColor);
+        for (int i = 0; i < clouds.size(); i++) {
+            Rectangle c = clouds.get(i);
+            g2.fillRoundRect(lerp(cloudPrev.get(i).x, c.x, alpha), c.y, c.width, c.height, 20, 20);
+        }
+
+        g2.setPaint(pipePaint);
         for (PipePair p : pipes) {
-            GradientPaint pipeColor = new GradientPaint(p.x, 0, new Color(0, 200, 0),
-                                                        p.x + PIPE_WIDTH, 0, new Color(0, 120, 0));
-            g2.setPaint(pipeColor);
-            g2.fillRect(p.x, 0, PIPE_WIDTH, p.gapY);
-            g2.fillRect(p.x, p.gapY + GAP_HEIGHT, PIPE_WIDTH,
+            int x = lerp(p.prevX, p.x, alpha);
+            g2.translate(x, 0);
+            g2.fillRect(0, 0, PIPE_WIDTH, p.gapY);
+            g2.fillRect(0, p.gapY + GAP_HEIGHT, PIPE_WIDTH,
                         HEIGHT - p.gapY - GAP_HEIGHT - GROUND_HEIGHT);
+            g2.translate(-x, 0);
         }
 
-        
-        g2.setColor(new Color(0, 0, 0, 50));
-        g2.fillOval(ballX + 3, ballY + 3, BALL_SIZE, BALL_SIZE);
-        g2.setColor(new Color(255, 70, 70));
-        g2.fillOval(ballX, ballY, BALL_SIZE, BALL_SIZE);
+        int y = lerp(prevBallY, ballY, alpha);
+        g2.setColor(shadowColor);
+        g2.fillOval(ballX + 3, y + 3, BALL_SIZE, BALL_SIZE);
+        g2.setColor(ballColor);
+        g2.fillOval(ballX, y, BALL_SIZE, BALL_SIZE);
         g2.setColor(Color.WHITE);
-        g2.fillOval(ballX + 5, ballY + 5, 6, 6);
+        g2.fillOval(ballX + 5, y + 5, 6, 6);
         g2.setColor(Color.BLACK);
-        g2.drawOval(ballX, ballY, BALL_SIZE, BALL_SIZE);
+        g2.drawOval(ballX, y, BALL_SIZE, BALL_SIZE);
 
-        
-        g2.setFont(new Font("MV Boli", Font.BOLD, 24));
+        g2.setFont(scoreFont);
         g2.setColor(Color.BLACK);
-        g2.drawString("Score: " + score, WIDTH / 2 - 50, 40);
+        g2.drawString(scoreText, WIDTH / 2 - 50, 40);
 
-        
         if (!started) {
-            g2.setFont(new Font("MV Boli", Font.BOLD, 22));
+            g2.setFont(startFont);
             g2.drawString("Press SPACE to start", WIDTH / 2 - 130, HEIGHT / 2);
         }
 
-        
         if (gameOver) {
-            
-            Font bigFont = new Font("MV Boli", Font.BOLD, 80);
+
             g2.setFont(bigFont);
-            g2.setColor(new Color(255, 255, 255, 40));
+            g2.setColor(watermarkColor);
             FontMetrics fm = g2.getFontMetrics(bigFont);
             String bgName = "ATULYA JHA";
             int x = (WIDTH - fm.stringWidth(bgName)) / 2;
-            int y = HEIGHT / 2 + fm.getAscent() / 2;
-            g2.drawString(bgName, x, y);
+            int ty = HEIGHT / 2 + fm.getAscent() / 2;
+            g2.drawString(bgName, x, ty);
 
-            
-            g2.setFont(new Font("MV Boli", Font.BOLD, 32));
+            g2.setFont(overFont);
             g2.setColor(Color.BLACK);
             g2.drawString("Game Over!", WIDTH / 2 - 100, HEIGHT / 2 - 30);
-            g2.setFont(new Font("MV Boli", Font.PLAIN, 20));
+            g2.setFont(restartFont);
             g2.drawString("Press SPACE to restart", WIDTH / 2 - 115, HEIGHT / 2 + 15);
 
-            
-            g2.setFont(new Font("MV Boli", Font.PLAIN, 16));
+            g2.setFont(signatureFont);
             g2.setColor(Color.BLACK);
             String signature = "Atulya Jha";
             g2.drawString(signature, WIDTH / 2 - g2.getFontMetrics().stringWidth(signature)/2,
                           HEIGHT / 2 + 50);
 
-            
-            g2.setFont(new Font("MV Boli", Font.PLAIN, 14));
+            g2.setFont(langFont);
             g2.setColor(Color.BLACK);
             String lang = "Java";
             g2.drawString(lang, WIDTH / 2 - g2.getFontMetrics().stringWidth(lang)/2,
@@ -226,7 +332,7 @@ class FlappyBirdGame extends JPanel implements ActionListener, KeyListener {
 
     @Override
     public void keyPressed(KeyEvent e) {
-        if (e.getKeyCode() == KeyEvent.VK_SPACE) jump();
+        if (e.getKeyCode() == KeyEvent.VK_SPACE) jumpRequested = true;
     }
     @Override public void keyReleased(KeyEvent e) {}
     @Override public void keyTyped(KeyEvent e) {}
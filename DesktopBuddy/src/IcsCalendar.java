@@ -0,0 +1,382 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
+
+public class IcsCalendar {
+
+    public static final int BATCH = 1000;
+
+    private static final DateTimeFormatter DATE = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+    private static final int FOLD = 75;
+
+    public interface Sink {
+        void accept(SortedMap<Long, String> days, List<RecurrenceRule> rules, List<TimedEvent> timed) throws IOException;
+    }
+
+    public static int importEvents(File file, Sink sink, LongConsumer progress, BooleanSupplier cancelled) throws IOException {
+        int total = 0;
+        try (CountingInputStream counter = new CountingInputStream(new FileInputStream(file));
+             BufferedReader in = new BufferedReader(new InputStreamReader(counter, StandardCharsets.UTF_8), 1 << 16)) {
+            SortedMap<Long, String> days = new TreeMap<>();
+            List<RecurrenceRule> rules = new ArrayList<>();
+            List<TimedEvent> timed = new ArrayList<>();
+            StringBuilder unfolded = new StringBuilder();
+            VEvent event = null;
+            int nested = 0;
+            int pending = 0;
+
+            String line;
+            String next = in.readLine();
+            while ((line = next) != null) {
+                next = in.readLine();
+                if (next != null && !next.isEmpty() && (next.charAt(0) == ' ' || next.charAt(0) == '\t')) {
+                    unfolded.setLength(0);
+                    unfolded.append(line);
+                    while (next != null && !next.isEmpty() && (next.charAt(0) == ' ' || next.charAt(0) == '\t')) {
+                        unfolded.append(next, 1, next.length());
+                        next = in.readLine();
+                    }
+                    line = unfolded.toString();
+                }
+
+                int colon = valueStart(line);
+                if (colon < 0) {
+                    continue;
+                }
+                String name = line.substring(0, colon);
+                String params = "";
+                int semi = name.indexOf(';');
+                if (semi >= 0) {
+                    params = name.substring(semi + 1);
+                    name = name.substring(0, semi);
+                }
+                name = name.toUpperCase(Locale.ROOT);
+                String value = line.substring(colon + 1);
+
+                if (name.equals("BEGIN")) {
+                    if (event != null) {
+                        nested++;
+                    } else if (value.equalsIgnoreCase("VEVENT")) {
+                        event = new VEvent();
+                    }
+                } else if (name.equals("END") && event != null) {
+                    if (nested > 0) {
+                        nested--;
+                    } else {
+                        int added = event.add(days, rules, timed);
+                        if (added > 0) {
+                            total++;
+                            pending += added;
+                        }
+                        event = null;
+                        if (pending >= BATCH) {
+                            if (cancelled.getAsBoolean()) {
+                                return total - pending;
+                            }
+                            sink.accept(days, rules, timed);
+                            days = new TreeMap<>();
+                            rules = new ArrayList<>();
+                            timed = new ArrayList<>();
+                            pending = 0;
+                            progress.accept(counter.getCount());
+                        }
+                    }
+                } else if (event != null && nested == 0) {
+                    event.property(name, params, value);
+                }
+            }
+            if (pending > 0) {
+                if (cancelled.getAsBoolean()) {
+                    return total - pending;
+                }
+                sink.accept(days, rules, timed);
+            }
+            progress.accept(counter.getCount());
+        }
+        return total;
+    }
+
+    private static int valueStart(String line) {
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ':' && !quoted) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static long parseDay(String value) {
+        return LocalDate.parse(value.trim().substring(0, 8), DATE).toEpochDay();
+    }
+
+    private static long parseMinute(String value) {
+        String v = value.trim();
+        LocalDateTime time = LocalDateTime.parse(v.substring(0, 15), DATE_TIME);
+        if (v.endsWith("Z")) {
+            time = time.atOffset(ZoneOffset.UTC).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+        }
+        return TimedEvent.minuteOf(time);
+    }
+
+    private static String unescape(String s) {
+        if (s.indexOf('\\') < 0) {
+            return s;
+        }
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < s.length()) {
+                char e = s.charAt(++i);
+                sb.append(e == 'n' || e == 'N' ? ' ' : e);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    static String join(String a, String b) {
+        if (a.equals(b) || a.startsWith(b + " · ") || a.endsWith(" · " + b) || a.contains(" · " + b + " · ")) {
+            return a;
+        }
+        return a + " · " + b;
+    }
+
+    private static String escape(String s) {
+        return s.replace("\\", "\\\\").replace(";", "\\;").replace(",", "\\,")
+                .replace("\r\n", "\\n").replace("\r", "\\n").replace("\n", "\\n");
+    }
+
+    private static class VEvent {
+        long start = Long.MIN_VALUE;
+        long startMinute = Long.MIN_VALUE;
+        long endMinute = Long.MIN_VALUE;
+        long end = Long.MIN_VALUE;
+        String summary = "";
+        String rrule;
+        long[] exdates = new long[0];
+
+        void property(String name, String params, String value) {
+            try {
+                switch (name) {
+                    case "DTSTART":
+                        start = parseDay(value);
+                        if (value.indexOf('T') >= 0) {
+                            startMinute = parseMinute(value);
+                        }
+                        break;
+                    case "DTEND":
+                        if (value.indexOf('T') >= 0) {
+                            endMinute = parseMinute(value);
+                        } else {
+                            end = parseDay(value);
+                        }
+                        break;
+                    case "SUMMARY":
+                        summary = unescape(value).trim();
+                        break;
+                    case "RRULE":
+                        rrule = value;
+                        break;
+                    case "EXDATE":
+                        for (String d : value.split(",")) {
+                            exdates = Arrays.copyOf(exdates, exdates.length + 1);
+                            exdates[exdates.length - 1] = parseDay(d);
+                        }
+                        break;
+                    default:
+                }
+            } catch (RuntimeException ignored) {
+            }
+        }
+
+        int add(SortedMap<Long, String> days, List<RecurrenceRule> rules, List<TimedEvent> timed) {
+            if (start == Long.MIN_VALUE || summary.isEmpty()) {
+                return 0;
+            }
+            if (rrule == null && startMinute != Long.MIN_VALUE && endMinute > startMinute) {
+                timed.add(new TimedEvent(startMinute, endMinute, summary));
+                return 1;
+            }
+            if (rrule == null) {
+                long last = startMinute == Long.MIN_VALUE && end > start ? end - 1 : start;
+                for (long day = start; day <= last; day++) {
+                    days.merge(day, summary, IcsCalendar::join);
+                }
+                return (int) (last - start + 1);
+            }
+            RecurrenceRule.Frequency frequency = null;
+            int interval = 1;
+            long until = Long.MAX_VALUE;
+            int count = -1;
+            for (String part : rrule.split(";")) {
+                int eq = part.indexOf('=');
+                if (eq < 0) {
+                    continue;
+                }
+                String key = part.substring(0, eq).toUpperCase(Locale.ROOT);
+                String val = part.substring(eq + 1);
+                try {
+                    switch (key) {
+                        case "FREQ": frequency = RecurrenceRule.Frequency.valueOf(val.toUpperCase(Locale.ROOT)); break;
+                        case "INTERVAL": interval = Math.max(1, Integer.parseInt(val)); break;
+                        case "UNTIL": until = parseDay(val); break;
+                        case "COUNT": count = Integer.parseInt(val); break;
+                        default:
+                    }
+                } catch (RuntimeException ignored) {
+                }
+            }
+            if (frequency == null) {
+                days.merge(start, summary, IcsCalendar::join);
+                return 1;
+            }
+            Arrays.sort(exdates);
+            if (count > 0) {
+                until = Math.min(until, countedUntil(new RecurrenceRule(start, frequency, interval, until, summary), count));
+            }
+            rules.add(new RecurrenceRule(start, frequency, interval, until, summary, exdates));
+            return 1;
+        }
+
+        private static long countedUntil(RecurrenceRule rule, int count) {
+            long[] last = {rule.getStart()};
+            int[] seen = {0};
+            long span = rule.getFrequency() == RecurrenceRule.Frequency.YEARLY ? 366 * 4
+                    : rule.getFrequency() == RecurrenceRule.Frequency.MONTHLY ? 31 * 12 : 7;
+            long step = span * rule.getInterval();
+            for (long from = rule.getStart(); seen[0] < count && from <= rule.getUntil(); from += step) {
+                rule.expand(from, from + step - 1, day -> {
+                    if (seen[0]++ < count) {
+                        last[0] = day;
+                    }
+                });
+            }
+            return last[0];
+        }
+    }
+
+    public static int exportEvents(File file, EventStore store, RecurrenceSet recurrences, TimedEventSet timed,
+                                   LongConsumer progress, BooleanSupplier cancelled) throws IOException {
+        int written = 0;
+        String stamp = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").format(Instant.now().atOffset(ZoneOffset.UTC));
+        File tmp = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+        boolean moved = false;
+        try {
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8), 1 << 16)) {
+                writeLine(out, "BEGIN:VCALENDAR");
+                writeLine(out, "VERSION:2.0");
+                writeLine(out, "PRODID:-//DesktopBuddy//Calendar//EN");
+
+                for (RecurrenceRule rule : recurrences.snapshot()) {
+                    if (cancelled.getAsBoolean()) {
+                        return written;
+                    }
+                    writeEvent(out, "rule-" + written, stamp, dateLine(rule.getStart()), null, rule.getText(), rule);
+                    written++;
+                }
+
+                List<TimedEvent> scheduled = new ArrayList<>();
+                timed.forEach(scheduled::add);
+                for (TimedEvent event : scheduled) {
+                    if (cancelled.getAsBoolean()) {
+                        return written;
+                    }
+                    writeEvent(out, "timed-" + written, stamp, "DTSTART:" + DATE_TIME.format(TimedEvent.timeOf(event.getStart())),
+                            "DTEND:" + DATE_TIME.format(TimedEvent.timeOf(event.getEnd())), event.getText(), null);
+                    written++;
+                }
+
+                long first = store.firstDay();
+                long last = store.lastDay();
+                long span = Math.max(1, last - first + 1);
+                for (long from = first; from <= last && !cancelled.getAsBoolean(); from += EventStore.RANGE_CHUNK) {
+                    List<Long> days = new ArrayList<>();
+                    List<String> texts = new ArrayList<>();
+                    store.range(from, Math.min(last, from + EventStore.RANGE_CHUNK - 1), (day, text) -> {
+                        days.add(day);
+                        texts.add(text);
+                    });
+                    for (int i = 0; i < days.size(); i++) {
+                        writeEvent(out, "day-" + days.get(i), stamp, dateLine(days.get(i)), null, texts.get(i), null);
+                    }
+                    written += days.size();
+                    progress.accept((from - first + EventStore.RANGE_CHUNK) * 100 / span);
+                }
+                writeLine(out, "END:VCALENDAR");
+            }
+            if (!cancelled.getAsBoolean()) {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                moved = true;
+            }
+        } finally {
+            if (!moved) {
+                tmp.delete();
+            }
+        }
+        return written;
+    }
+
+    private static String dateLine(long day) {
+        return "DTSTART;VALUE=DATE:" + DATE.format(LocalDate.ofEpochDay(day));
+    }
+
+    private static void writeEvent(Writer out, String uid, String stamp, String start, String end, String text, RecurrenceRule rule) throws IOException {
+        writeLine(out, "BEGIN:VEVENT");
+        writeLine(out, "UID:" + uid + "@desktopbuddy");
+        writeLine(out, "DTSTAMP:" + stamp);
+        writeLine(out, start);
+        if (end != null) {
+            writeLine(out, end);
+        }
+        writeLine(out, "SUMMARY:" + escape(text));
+        if (rule != null) {
+            StringBuilder sb = new StringBuilder("RRULE:FREQ=").append(rule.getFrequency())
+                    .append(";INTERVAL=").append(rule.getInterval());
+            if (rule.getUntil() != Long.MAX_VALUE) {
+                sb.append(";UNTIL=").append(DATE.format(LocalDate.ofEpochDay(rule.getUntil())));
+            }
+            writeLine(out, sb.toString());
+            for (long exdate : rule.getExceptions()) {
+                writeLine(out, "EXDATE;VALUE=DATE:" + DATE.format(LocalDate.ofEpochDay(exdate)));
+            }
+        }
+        writeLine(out, "END:VEVENT");
+    }
+
+    private static void writeLine(Writer out, String line) throws IOException {
+        int start = 0;
+        int octets = 0;
+        int limit = FOLD;
+        for (int i = 0; i < line.length(); ) {
+            int cp = line.codePointAt(i);
+            int width = cp < 0x80 ? 1 : cp < 0x800 ? 2 : cp < 0x10000 ? 3 : 4;
+            if (octets + width > limit) {
+                out.write(line, start, i - start);
+                out.write("\r\n ");
+                start = i;
+                octets = 0;
+                limit = FOLD - 1;
+            }
+            octets += width;
+            i += Character.charCount(cp);
+        }
+        out.write(line, start, line.length() - start);
+        out.write("\r\n");
+    }
+}
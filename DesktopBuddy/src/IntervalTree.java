@@ -0,0 +1,172 @@
+import java.util.Random;
+
+public class IntervalTree {
+
+    public interface EventConsumer {
+        void accept(TimedEvent event);
+    }
+
+    private static class Node {
+        final TimedEvent event;
+        final int priority;
+        long maxEnd;
+        Node left;
+        Node right;
+
+        Node(TimedEvent event, int priority) {
+            this.event = event;
+            this.priority = priority;
+            this.maxEnd = event.getEnd();
+        }
+    }
+
+    private final Random random = new Random();
+    private Node root;
+    private int size;
+    private long nextSeq;
+
+    public void add(TimedEvent event) {
+        event.seq = nextSeq++;
+        root = insert(root, new Node(event, random.nextInt()));
+        size++;
+    }
+
+    public boolean remove(TimedEvent event) {
+        int before = size;
+        root = delete(root, event);
+        return size < before;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void overlapping(long from, long to, EventConsumer out) {
+        overlapping(root, from, to, out);
+    }
+
+    public long maxEndBefore(long time) {
+        long max = Long.MIN_VALUE;
+        Node n = root;
+        while (n != null) {
+            if (n.event.getStart() < time) {
+                max = Math.max(max, Math.max(n.event.getEnd(), maxEnd(n.left)));
+                n = n.right;
+            } else {
+                n = n.left;
+            }
+        }
+        return max;
+    }
+
+    public long firstFree(long from, long to, long length) {
+        long t = from;
+        while (t + length <= to) {
+            long busyUntil = maxEndBefore(t + length);
+            if (busyUntil <= t) {
+                return t;
+            }
+            t = busyUntil;
+        }
+        return -1;
+    }
+
+    public void forEach(EventConsumer out) {
+        overlapping(root, Long.MIN_VALUE, Long.MAX_VALUE, out);
+    }
+
+    private static void overlapping(Node n, long from, long to, EventConsumer out) {
+        if (n == null || n.maxEnd <= from) {
+            return;
+        }
+        overlapping(n.left, from, to, out);
+        if (n.event.getStart() < to) {
+            if (n.event.getEnd() > from) {
+                out.accept(n.event);
+            }
+            overlapping(n.right, from, to, out);
+        }
+    }
+
+    private static int compare(TimedEvent a, TimedEvent b) {
+        int c = Long.compare(a.getStart(), b.getStart());
+        if (c == 0) {
+            c = Long.compare(a.getEnd(), b.getEnd());
+        }
+        return c != 0 ? c : Long.compare(a.seq, b.seq);
+    }
+
+    private static long maxEnd(Node n) {
+        return n == null ? Long.MIN_VALUE : n.maxEnd;
+    }
+
+    private static Node update(Node n) {
+        n.maxEnd = Math.max(n.event.getEnd(), Math.max(maxEnd(n.left), maxEnd(n.right)));
+        return n;
+    }
+
+    private static Node insert(Node n, Node added) {
+        if (n == null) {
+            return added;
+        }
+        if (added.priority > n.priority) {
+            Node[] parts = split(n, added.event);
+            added.left = parts[0];
+            added.right = parts[1];
+            return update(added);
+        }
+        if (compare(added.event, n.event) < 0) {
+            n.left = insert(n.left, added);
+        } else {
+            n.right = insert(n.right, added);
+        }
+        return update(n);
+    }
+
+    private static Node[] split(Node n, TimedEvent key) {
+        if (n == null) {
+            return new Node[2];
+        }
+        if (compare(n.event, key) < 0) {
+            Node[] parts = split(n.right, key);
+            n.right = parts[0];
+            parts[0] = update(n);
+            return parts;
+        }
+        Node[] parts = split(n.left, key);
+        n.left = parts[1];
+        parts[1] = update(n);
+        return parts;
+    }
+
+    private Node delete(Node n, TimedEvent event) {
+        if (n == null) {
+            return null;
+        }
+        if (n.event == event) {
+            size--;
+            return merge(n.left, n.right);
+        }
+        if (compare(event, n.event) < 0) {
+            n.left = delete(n.left, event);
+        } else {
+            n.right = delete(n.right, event);
+        }
+        return update(n);
+    }
+
+    private static Node merge(Node a, Node b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            return update(a);
+        }
+        b.left = merge(a, b.left);
+        return update(b);
+    }
+}
@@ -0,0 +1,105 @@
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+
+public class MonthModel {
+
+    private final YearMonth month;
+    private final int startDay;
+    private final String[] events;
+    private final String[] descriptions;
+    private final boolean[] conflicts;
+    private final List<List<RecurrenceRule>> occurrences;
+    private final List<List<TimedEvent>> scheduled;
+
+    private MonthModel(YearMonth month) {
+        this.month = month;
+        int length = month.lengthOfMonth();
+        this.startDay = month.atDay(1).getDayOfWeek().getValue() % 7;
+        this.events = new String[length];
+        this.descriptions = new String[length];
+        this.conflicts = new boolean[length];
+        this.occurrences = new ArrayList<>(Collections.nCopies(length, Collections.emptyList()));
+        this.scheduled = new ArrayList<>(Collections.nCopies(length, Collections.emptyList()));
+    }
+
+    public static MonthModel load(YearMonth month, EventIndex index, RecurrenceSet recurrences, TimedEventSet timed) {
+        MonthModel model = new MonthModel(month);
+        long fromDay = month.atDay(1).toEpochDay();
+        long toDay = month.atEndOfMonth().toEpochDay();
+        index.range(fromDay, toDay, (day, text) -> model.events[(int) (day - fromDay)] = text);
+        recurrences.expand(fromDay, toDay, (day, rule) -> model.add(model.occurrences, (int) (day - fromDay), rule));
+        timed.overlapping(fromDay * TimedEvent.MINUTES_PER_DAY, (toDay + 1) * TimedEvent.MINUTES_PER_DAY, event -> {
+            for (long day = Math.max(event.getStartDay(), fromDay); day <= Math.min(event.getEndDay(), toDay); day++) {
+                model.add(model.scheduled, (int) (day - fromDay), event);
+            }
+        });
+        timed.conflicts(fromDay, toDay, day -> model.conflicts[(int) (day - fromDay)] = true);
+        for (int i = 0; i < model.descriptions.length; i++) {
+            model.descriptions[i] = model.describe(i);
+        }
+        return model;
+    }
+
+    private <T> void add(List<List<T>> lists, int index, T item) {
+        if (lists.get(index).isEmpty()) {
+            lists.set(index, new ArrayList<>());
+        }
+        lists.get(index).add(item);
+    }
+
+    private String describe(int index) {
+        String event = events[index];
+        List<RecurrenceRule> repeating = occurrences.get(index);
+        List<TimedEvent> timedEvents = scheduled.get(index);
+        if (repeating.isEmpty() && timedEvents.isEmpty()) {
+            return event;
+        }
+        StringBuilder sb = new StringBuilder(event == null ? "" : event);
+        for (RecurrenceRule rule : repeating) {
+            if (sb.length() > 0) {
+                sb.append(" · ");
+            }
+            sb.append(rule.getText());
+        }
+        for (TimedEvent timedEvent : timedEvents) {
+            if (sb.length() > 0) {
+                sb.append(" · ");
+            }
+            sb.append(timedEvent);
+        }
+        return sb.toString();
+    }
+
+    public YearMonth getMonth() {
+        return month;
+    }
+
+    public int getStartDay() {
+        return startDay;
+    }
+
+    public int getLength() {
+        return events.length;
+    }
+
+    public String getEvent(LocalDate date) {
+        return events[date.getDayOfMonth() - 1];
+    }
+
+    public String getDescription(int dayOfMonth) {
+        return descriptions[dayOfMonth - 1];
+    }
+
+    public boolean isConflict(int dayOfMonth) {
+        return conflicts[dayOfMonth - 1];
+    }
+
+    public List<RecurrenceRule> getOccurrences(LocalDate date) {
+        return occurrences.get(date.getDayOfMonth() - 1);
+    }
+
+    public List<TimedEvent> getScheduled(LocalDate date) {
+        return scheduled.get(date.getDayOfMonth() - 1);
+    }
+}
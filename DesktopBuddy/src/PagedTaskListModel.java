@@ -0,0 +1,567 @@
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class PagedTaskListModel extends TaskListModel implements Closeable {
+
+    public static final int PAGE_SIZE = 256;
+    public static final int DEFAULT_CACHED_PAGES = 64;
+    public static final int COMPACT_MIN_DEAD = 4096;
+
+    private FileChannel data;
+    private FileChannel index;
+    private final Path rowsPath;
+    private final Path indexPath;
+    private final Path map;
+    private final Path mapTmp;
+    private final Path compacting;
+    private final int maxPages;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "paged-task-writer");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Map<Integer, String> unwritten = new HashMap<>();
+
+    private long durableLength;
+    private int durableRows;
+    private int physicalRows;
+    private int generation;
+    private int modCount;
+    private boolean loading;
+    private boolean mapDirty;
+
+    private int[] starts = new int[16];
+    private int[] counts = new int[16];
+    private int[] prefix = new int[17];
+    private int extents;
+
+    private final LinkedHashMap<Integer, String[]> pages;
+
+    public PagedTaskListModel(File file) throws IOException {
+        this(file, DEFAULT_CACHED_PAGES);
+    }
+
+    public PagedTaskListModel(File file, int maxPages) throws IOException {
+        Path base = file.toPath().toAbsolutePath();
+        rowsPath = sibling(base, ".rows");
+        indexPath = sibling(base, ".idx");
+        map = sibling(base, ".map");
+        mapTmp = sibling(base, ".map.tmp");
+        compacting = sibling(base, ".compacting");
+        this.maxPages = maxPages;
+        recover();
+        boolean fresh = !Files.exists(rowsPath);
+
+        data = open(rowsPath);
+        index = open(indexPath);
+        pages = new LinkedHashMap<>(maxPages * 2, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<Integer, String[]> eldest) {
+                return size() > PagedTaskListModel.this.maxPages;
+            }
+        };
+
+        durableLength = data.size();
+        durableRows = (int) (index.size() / Long.BYTES);
+        physicalRows = durableRows;
+        if (fresh && Files.exists(base)) {
+            loading = true;
+            TaskJournal.readLines(base, TaskJournal.LOAD_CHUNK, this::addAll);
+            loading = false;
+            writeMap(starts, counts, extents);
+        } else {
+            readMap();
+        }
+    }
+
+    private static FileChannel open(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private void recover() throws IOException {
+        Path rowsTmp = sibling(rowsPath, ".tmp");
+        Path indexTmp = sibling(indexPath, ".tmp");
+        if (Files.exists(compacting)) {
+            if (Files.exists(rowsTmp)) {
+                Files.move(rowsTmp, rowsPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            if (Files.exists(indexTmp)) {
+                Files.move(indexTmp, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            starts[0] = 0;
+            counts[0] = (int) (Files.size(indexPath) / Long.BYTES);
+            extents = counts[0] > 0 ? 1 : 0;
+            recomputePrefix();
+            writeMap(starts, counts, extents);
+            Files.delete(compacting);
+        } else {
+            Files.deleteIfExists(rowsTmp);
+            Files.deleteIfExists(indexTmp);
+        }
+    }
+
+    private static Path sibling(Path p, String suffix) {
+        return p.resolveSibling(p.getFileName() + suffix);
+    }
+
+    @Override
+    public synchronized int getSize() {
+        return prefix[extents];
+    }
+
+    @Override
+    public synchronized String getElementAt(int row) {
+        if (row < 0 || row >= getSize()) {
+            throw new ArrayIndexOutOfBoundsException(row);
+        }
+        int page = row / PAGE_SIZE;
+        String[] cached = pages.get(page);
+        if (cached == null) {
+            cached = loadPage(page);
+            pages.put(page, cached);
+        }
+        return cached[row - page * PAGE_SIZE];
+    }
+
+    private String[] loadPage(int page) {
+        int first = page * PAGE_SIZE;
+        int n = Math.min(PAGE_SIZE, getSize() - first);
+        String[] rows = new String[n];
+        int k = extentOf(first);
+        int done = 0;
+        try {
+            while (done < n) {
+                int offset = first + done - prefix[k];
+                int run = Math.min(counts[k] - offset, n - done);
+                readPhysical(starts[k] + offset, run, rows, done);
+                done += run;
+                k++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return rows;
+    }
+
+    private void readPhysical(int start, int n, String[] dest, int destOffset) throws IOException {
+        int onDisk = Math.max(0, Math.min(n, durableRows - start));
+        if (onDisk > 0) {
+            readDurable(start, onDisk, dest, destOffset);
+        }
+        if (onDisk < n) {
+            synchronized (this) {
+                for (int i = onDisk; i < n; i++) {
+                    dest[destOffset + i] = unwritten.get(start + i);
+                }
+            }
+        }
+    }
+
+    private void readDurable(int start, int n, String[] dest, int destOffset) throws IOException {
+        long[] offsets = new long[n + 1];
+        int stored = Math.min(n + 1, durableRows - start);
+        ByteBuffer idx = ByteBuffer.allocate(stored * Long.BYTES);
+        readFully(index, idx, (long) start * Long.BYTES);
+        idx.flip();
+        for (int i = 0; i < stored; i++) {
+            offsets[i] = idx.getLong();
+        }
+        if (stored == n) {
+            offsets[n] = durableLength;
+        }
+
+        ByteBuffer bytes = ByteBuffer.allocate((int) (offsets[n] - offsets[0]));
+        readFully(data, bytes, offsets[0]);
+        byte[] raw = bytes.array();
+        for (int i = 0; i < n; i++) {
+            int from = (int) (offsets[i] - offsets[0]);
+            int to = (int) (offsets[i + 1] - offsets[0]) - 1;
+            dest[destOffset + i] = new String(raw, from, to - from, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, position);
+            if (n < 0) {
+                throw new IOException("Unexpected end of " + ch);
+            }
+            position += n;
+        }
+    }
+
+    private int appendPhysical(Collection<String> rows) throws IOException {
+        int first = physicalRows;
+        physicalRows += rows.size();
+        List<String> batch = new ArrayList<>(rows);
+        if (loading) {
+            writeRows(generation, first, batch);
+            return first;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            unwritten.put(first + i, batch.get(i));
+        }
+        int current = generation;
+        writer.execute(() -> {
+            try {
+                writeRows(current, first, batch);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+        return first;
+    }
+
+    private void writeRows(int gen, int first, List<String> rows) throws IOException {
+        if (gen != generation) {
+            return;
+        }
+        ByteBuffer idx = ByteBuffer.allocate(rows.size() * Long.BYTES);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (String row : rows) {
+            idx.putLong(durableLength + out.size());
+            out.write(row.getBytes(StandardCharsets.UTF_8));
+            out.write('\n');
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(out.toByteArray());
+        while (bytes.hasRemaining()) {
+            data.write(bytes, durableLength + bytes.position());
+        }
+        idx.flip();
+        while (idx.hasRemaining()) {
+            index.write(idx, (long) first * Long.BYTES + idx.position());
+        }
+        synchronized (this) {
+            durableLength += out.size();
+            durableRows = first + rows.size();
+            for (int i = 0; i < rows.size(); i++) {
+                unwritten.remove(first + i);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void add(int row, String task) {
+        if (row < 0 || row > getSize()) {
+            throw new ArrayIndexOutOfBoundsException(row);
+        }
+        try {
+            int physical = appendPhysical(Collections.singletonList(task));
+            insertExtent(splitAt(row), physical, 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        mapChanged();
+        invalidateFrom(row);
+        fireIntervalAdded(this, row, row);
+    }
+
+    @Override
+    public synchronized void addAll(Collection<String> chunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        int first = getSize();
+        try {
+            int physical = appendPhysical(chunk);
+            insertExtent(extents, physical, chunk.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        mapChanged();
+        invalidateFrom(first);
+        fireIntervalAdded(this, first, getSize() - 1);
+    }
+
+    @Override
+    public synchronized void set(int row, String task) {
+        if (row < 0 || row >= getSize()) {
+            throw new ArrayIndexOutOfBoundsException(row);
+        }
+        String old = getElementAt(row);
+        try {
+            int physical = appendPhysical(Collections.singletonList(task));
+            dropExtentRow(row);
+            insertExtent(splitAt(row), physical, 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        mapChanged();
+        invalidateFrom(row);
+        fireReplaced(row, old);
+    }
+
+    @Override
+    public synchronized void remove(int row) {
+        if (row < 0 || row >= getSize()) {
+            throw new ArrayIndexOutOfBoundsException(row);
+        }
+        String old = getElementAt(row);
+        dropExtentRow(row);
+        mapChanged();
+        invalidateFrom(row);
+        fireRemoved(row, old);
+    }
+
+    @Override
+    public synchronized void clear() {
+        int last = getSize() - 1;
+        if (last < 0) {
+            return;
+        }
+        extents = 0;
+        mapChanged();
+        pages.clear();
+        fireIntervalRemoved(this, 0, last);
+    }
+
+    private void dropExtentRow(int row) {
+        int k = splitAt(row);
+        starts[k]++;
+        counts[k]--;
+        if (counts[k] == 0) {
+            deleteExtent(k);
+        }
+        mergeAround(k);
+    }
+
+    private int extentOf(int row) {
+        int lo = 0, hi = extents - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (prefix[mid] <= row) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    private int splitAt(int row) {
+        if (row == getSize()) {
+            return extents;
+        }
+        int k = extentOf(row);
+        int offset = row - prefix[k];
+        if (offset == 0) {
+            return k;
+        }
+        ensureExtents(extents + 1);
+        System.arraycopy(starts, k + 1, starts, k + 2, extents - k - 1);
+        System.arraycopy(counts, k + 1, counts, k + 2, extents - k - 1);
+        starts[k + 1] = starts[k] + offset;
+        counts[k + 1] = counts[k] - offset;
+        counts[k] = offset;
+        extents++;
+        recomputePrefix();
+        return k + 1;
+    }
+
+    private void insertExtent(int k, int start, int count) {
+        if (k > 0 && starts[k - 1] + counts[k - 1] == start) {
+            counts[k - 1] += count;
+        } else {
+            ensureExtents(extents + 1);
+            System.arraycopy(starts, k, starts, k + 1, extents - k);
+            System.arraycopy(counts, k, counts, k + 1, extents - k);
+            starts[k] = start;
+            counts[k] = count;
+            extents++;
+        }
+        recomputePrefix();
+    }
+
+    private void deleteExtent(int k) {
+        System.arraycopy(starts, k + 1, starts, k, extents - k - 1);
+        System.arraycopy(counts, k + 1, counts, k, extents - k - 1);
+        extents--;
+    }
+
+    private void mergeAround(int k) {
+        if (k > 0 && k < extents && starts[k - 1] + counts[k - 1] == starts[k]) {
+            counts[k - 1] += counts[k];
+            deleteExtent(k);
+        }
+        recomputePrefix();
+    }
+
+    private void recomputePrefix() {
+        if (prefix.length < extents + 1) {
+            prefix = new int[starts.length + 1];
+        }
+        for (int i = 0; i < extents; i++) {
+            prefix[i + 1] = prefix[i] + counts[i];
+        }
+    }
+
+    private void ensureExtents(int capacity) {
+        if (capacity > starts.length) {
+            int n = Math.max(capacity, starts.length * 2);
+            starts = Arrays.copyOf(starts, n);
+            counts = Arrays.copyOf(counts, n);
+        }
+    }
+
+    private void invalidateFrom(int row) {
+        int page = row / PAGE_SIZE;
+        Iterator<Integer> it = pages.keySet().iterator();
+        while (it.hasNext()) {
+            if (it.next() >= page) {
+                it.remove();
+            }
+        }
+    }
+
+    private void readMap() throws IOException {
+        extents = 0;
+        if (Files.exists(map)) {
+            ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(map));
+            int n = buf.getInt();
+            ensureExtents(n);
+            for (int i = 0; i < n; i++) {
+                int start = buf.getInt();
+                int count = Math.min(buf.getInt(), physicalRows - start);
+                if (count > 0) {
+                    starts[extents] = start;
+                    counts[extents++] = count;
+                }
+            }
+        }
+        recomputePrefix();
+    }
+
+    private void mapChanged() {
+        modCount++;
+        if (loading || mapDirty) {
+            return;
+        }
+        mapDirty = true;
+        writer.execute(this::flush);
+    }
+
+    private void flush() {
+        int[] s;
+        int[] c;
+        int n;
+        int mod;
+        boolean compact;
+        synchronized (this) {
+            if (!mapDirty || !data.isOpen()) {
+                return;
+            }
+            mapDirty = false;
+            n = extents;
+            s = Arrays.copyOf(starts, n);
+            c = Arrays.copyOf(counts, n);
+            mod = modCount;
+            compact = physicalRows - getSize() > Math.max(COMPACT_MIN_DEAD, getSize());
+        }
+        try {
+            if (compact) {
+                compact(s, c, n, mod);
+            } else {
+                writeMap(s, c, n);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void compact(int[] s, int[] c, int n, int mod) throws IOException {
+        Path rowsTmp = sibling(rowsPath, ".tmp");
+        Path indexTmp = sibling(indexPath, ".tmp");
+        long length = 0;
+        try (FileChannel rowsOut = FileChannel.open(rowsTmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             FileChannel indexOut = FileChannel.open(indexTmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            String[] run = new String[PAGE_SIZE];
+            for (int k = 0; k < n; k++) {
+                for (int done = 0; done < c[k]; done += PAGE_SIZE) {
+                    int m = Math.min(PAGE_SIZE, c[k] - done);
+                    readPhysical(s[k] + done, m, run, 0);
+                    ByteBuffer idx = ByteBuffer.allocate(m * Long.BYTES);
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    for (int i = 0; i < m; i++) {
+                        idx.putLong(length + out.size());
+                        out.write(run[i].getBytes(StandardCharsets.UTF_8));
+                        out.write('\n');
+                    }
+                    idx.flip();
+                    while (idx.hasRemaining()) {
+                        indexOut.write(idx);
+                    }
+                    ByteBuffer bytes = ByteBuffer.wrap(out.toByteArray());
+                    while (bytes.hasRemaining()) {
+                        rowsOut.write(bytes);
+                    }
+                    length += out.size();
+                }
+            }
+            rowsOut.force(true);
+            indexOut.force(true);
+        }
+
+        synchronized (this) {
+            if (mod != modCount) {
+                Files.delete(rowsTmp);
+                Files.delete(indexTmp);
+                mapChanged();
+                return;
+            }
+            Files.createFile(compacting);
+            data.close();
+            index.close();
+            recover();
+            data = open(rowsPath);
+            index = open(indexPath);
+            durableLength = length;
+            durableRows = getSize();
+            physicalRows = durableRows;
+            unwritten.clear();
+            generation++;
+        }
+    }
+
+    private void writeMap(int[] s, int[] c, int n) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(Integer.BYTES + n * 2 * Integer.BYTES);
+        buf.putInt(n);
+        for (int i = 0; i < n; i++) {
+            buf.putInt(s[i]).putInt(c[i]);
+        }
+        Files.write(mapTmp, buf.array());
+        Files.move(mapTmp, map, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.execute(this::flush);
+        writer.shutdown();
+        try {
+            writer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            data.close();
+            index.close();
+        }
+    }
+}
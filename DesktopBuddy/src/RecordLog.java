@@ -0,0 +1,124 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class RecordLog {
+
+    private static final String GENERATION = "#gen\t";
+    private static final int MIN_COMPACT = 1000;
+
+    private final Path file;
+    private final Path tmp;
+    private long generation = -1;
+    private long offset;
+    private int records;
+
+    public RecordLog(File file) {
+        this.file = file.toPath().toAbsolutePath();
+        this.tmp = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+    }
+
+    public boolean catchUp(Runnable reset, Consumer<String> apply) throws IOException {
+        long current = readGeneration();
+        boolean changed = false;
+        if (current != generation) {
+            reset.run();
+            generation = current;
+            offset = 0;
+            records = 0;
+            changed = true;
+        }
+        if (!Files.exists(file)) {
+            return changed;
+        }
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size <= offset) {
+                return changed;
+            }
+            ByteBuffer buf = ByteBuffer.allocate((int) (size - offset));
+            while (buf.hasRemaining()) {
+                if (ch.read(buf, offset + buf.position()) < 0) {
+                    break;
+                }
+            }
+            byte[] bytes = buf.array();
+            int start = 0;
+            for (int i = 0; i < buf.position(); i++) {
+                if (bytes[i] == '\n') {
+                    String line = new String(bytes, start, i - start, StandardCharsets.UTF_8);
+                    if (!line.startsWith(GENERATION)) {
+                        apply.accept(line);
+                        records++;
+                        changed = true;
+                    }
+                    start = i + 1;
+                }
+            }
+            offset += start;
+        }
+        return changed;
+    }
+
+    public void append(List<String> lines) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (String line : lines) {
+            sb.append(line).append('\n');
+        }
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        try (OutputStream out = new FileOutputStream(file.toFile(), true)) {
+            out.write(bytes);
+        }
+        offset += bytes.length;
+        records += lines.size();
+    }
+
+    public boolean needsCompaction(int live) {
+        return records >= MIN_COMPACT && records > 2 * live;
+    }
+
+    public void compact(List<String> lines) throws IOException {
+        long next = generation + 1;
+        try (FileOutputStream fos = new FileOutputStream(tmp.toFile());
+             Writer out = new BufferedWriter(new OutputStreamWriter(fos, StandardCharsets.UTF_8))) {
+            out.write(GENERATION + next + "\n");
+            for (String line : lines) {
+                out.write(line);
+                out.write('\n');
+            }
+            out.flush();
+            fos.getFD().sync();
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        generation = next;
+        offset = Files.size(file);
+        records = lines.size();
+    }
+
+    private long readGeneration() throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buf = ByteBuffer.allocate(32);
+            ch.read(buf, 0);
+            String head = new String(buf.array(), 0, buf.position(), StandardCharsets.UTF_8);
+            int end = head.indexOf('\n');
+            if (!head.startsWith(GENERATION) || end < 0) {
+                return 0;
+            }
+            try {
+                return Long.parseLong(head.substring(GENERATION.length(), end));
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+    }
+}
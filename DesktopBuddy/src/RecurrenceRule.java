@@ -0,0 +1,126 @@
+import java.time.LocalDate;
+import java.util.Arrays;
+
+public class RecurrenceRule {
+
+    public enum Frequency {
+        DAILY, WEEKLY, MONTHLY, YEARLY
+    }
+
+    public interface DayConsumer {
+        void accept(long day);
+    }
+
+    private final long start;
+    private final Frequency frequency;
+    private final int interval;
+    private final long until;
+    private final String text;
+    private long[] exceptions;
+
+    public RecurrenceRule(long start, Frequency frequency, int interval, long until, String text) {
+        this(start, frequency, interval, until, text, new long[0]);
+    }
+
+    RecurrenceRule(long start, Frequency frequency, int interval, long until, String text, long[] exceptions) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Interval must be at least 1");
+        }
+        this.start = start;
+        this.frequency = frequency;
+        this.interval = interval;
+        this.until = until;
+        this.text = text;
+        this.exceptions = exceptions;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getUntil() {
+        return until;
+    }
+
+    public Frequency getFrequency() {
+        return frequency;
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    long[] getExceptions() {
+        return exceptions;
+    }
+
+    public void addException(long day) {
+        int at = Arrays.binarySearch(exceptions, day);
+        if (at < 0) {
+            at = -at - 1;
+            long[] grown = new long[exceptions.length + 1];
+            System.arraycopy(exceptions, 0, grown, 0, at);
+            grown[at] = day;
+            System.arraycopy(exceptions, at, grown, at + 1, exceptions.length - at);
+            exceptions = grown;
+        }
+    }
+
+    public void expand(long from, long to, DayConsumer out) {
+        long first = Math.max(from, start);
+        long last = Math.min(to, until);
+        if (first > last) {
+            return;
+        }
+        if (frequency == Frequency.DAILY || frequency == Frequency.WEEKLY) {
+            long step = frequency == Frequency.DAILY ? interval : 7L * interval;
+            long day = start + ceilDiv(first - start, step) * step;
+            for (; day <= last; day += step) {
+                emit(day, out);
+            }
+            return;
+        }
+
+        LocalDate origin = LocalDate.ofEpochDay(start);
+        int dayOfMonth = origin.getDayOfMonth();
+        long step = frequency == Frequency.MONTHLY ? interval : 12L * interval;
+        long originMonth = monthIndex(origin);
+        long k = ceilDiv(monthIndex(LocalDate.ofEpochDay(first)) - originMonth, step);
+        long lastMonth = monthIndex(LocalDate.ofEpochDay(last));
+        for (long month = originMonth + k * step; month <= lastMonth; month += step) {
+            int year = (int) Math.floorDiv(month, 12);
+            int monthOfYear = Math.floorMod(month, 12) + 1;
+            LocalDate firstOfMonth = LocalDate.of(year, monthOfYear, 1);
+            if (dayOfMonth <= firstOfMonth.lengthOfMonth()) {
+                long day = firstOfMonth.toEpochDay() + dayOfMonth - 1;
+                if (day >= first && day <= last) {
+                    emit(day, out);
+                }
+            }
+        }
+    }
+
+    public boolean occursOn(long day) {
+        boolean[] found = new boolean[1];
+        expand(day, day, d -> found[0] = true);
+        return found[0];
+    }
+
+    private void emit(long day, DayConsumer out) {
+        if (exceptions.length == 0 || Arrays.binarySearch(exceptions, day) < 0) {
+            out.accept(day);
+        }
+    }
+
+    private static long monthIndex(LocalDate date) {
+        return date.getYear() * 12L + date.getMonthValue() - 1;
+    }
+
+    private static long ceilDiv(long a, long b) {
+        return a <= 0 ? 0 : -Math.floorDiv(-a, b);
+    }
+}
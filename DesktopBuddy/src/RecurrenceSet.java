@@ -0,0 +1,228 @@
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+public class RecurrenceSet {
+
+    public interface OccurrenceConsumer {
+        void accept(long day, RecurrenceRule rule);
+    }
+
+    private static final String ADD = "+\t";
+    private static final String REMOVE = "-\t";
+
+    private final RecordLog log;
+    private final EventStore store;
+    private final List<RecurrenceRule> rules = new ArrayList<>();
+
+    private RecurrenceRule[] byStart = new RecurrenceRule[0];
+    private long[] starts = new long[0];
+    private long[] maxUntil = new long[0];
+
+    public RecurrenceSet(File file, EventStore store) throws IOException {
+        this.log = new RecordLog(file);
+        this.store = store;
+        refresh();
+    }
+
+    public boolean refresh() throws IOException {
+        store.lock();
+        try {
+            synchronized (this) {
+                return catchUp();
+            }
+        } finally {
+            store.unlock();
+        }
+    }
+
+    public void add(RecurrenceRule rule) throws IOException {
+        addAll(Collections.singletonList(rule));
+    }
+
+    public void addAll(Collection<RecurrenceRule> added) throws IOException {
+        if (added.isEmpty()) {
+            return;
+        }
+        List<String> lines = new ArrayList<>(added.size());
+        for (RecurrenceRule rule : added) {
+            lines.add(ADD + format(rule));
+        }
+        store.lock();
+        try {
+            synchronized (this) {
+                catchUp();
+                write(lines);
+            }
+        } finally {
+            store.unlock();
+        }
+    }
+
+    public synchronized List<RecurrenceRule> snapshot() {
+        return new ArrayList<>(rules);
+    }
+
+    public void remove(RecurrenceRule rule) throws IOException {
+        store.lock();
+        try {
+            synchronized (this) {
+                catchUp();
+                int at = indexOf(rule);
+                if (at >= 0) {
+                    write(Collections.singletonList(REMOVE + format(rules.get(at))));
+                }
+            }
+        } finally {
+            store.unlock();
+        }
+    }
+
+    public void skip(RecurrenceRule rule, long day) throws IOException {
+        store.lock();
+        try {
+            synchronized (this) {
+                catchUp();
+                int at = indexOf(rule);
+                if (at >= 0) {
+                    String old = format(rules.get(at));
+                    RecurrenceRule next = parse(old);
+                    next.addException(day);
+                    write(Arrays.asList(REMOVE + old, ADD + format(next)));
+                }
+            }
+        } finally {
+            store.unlock();
+        }
+    }
+
+    private boolean catchUp() throws IOException {
+        if (log.catchUp(rules::clear, this::apply)) {
+            reindex();
+            return true;
+        }
+        return false;
+    }
+
+    private void write(List<String> lines) throws IOException {
+        log.append(lines);
+        for (String line : lines) {
+            apply(line);
+        }
+        reindex();
+        if (log.needsCompaction(rules.size())) {
+            List<String> live = new ArrayList<>(rules.size());
+            for (RecurrenceRule rule : rules) {
+                live.add(ADD + format(rule));
+            }
+            log.compact(live);
+        }
+    }
+
+    private void apply(String line) {
+        RecurrenceRule rule = line.length() > 2 ? parse(line.substring(2)) : null;
+        if (rule == null) {
+            return;
+        }
+        if (line.startsWith(ADD)) {
+            rules.add(rule);
+        } else if (line.startsWith(REMOVE)) {
+            int at = indexOf(rule);
+            if (at >= 0) {
+                rules.remove(at);
+            }
+        }
+    }
+
+    private int indexOf(RecurrenceRule rule) {
+        for (int i = 0; i < rules.size(); i++) {
+            RecurrenceRule r = rules.get(i);
+            if (r == rule || r.getStart() == rule.getStart() && r.getUntil() == rule.getUntil()
+                    && r.getFrequency() == rule.getFrequency() && r.getInterval() == rule.getInterval()
+                    && r.getText().equals(rule.getText())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public synchronized int size() {
+        return rules.size();
+    }
+
+    public synchronized void expand(long from, long to, OccurrenceConsumer out) {
+        int end = upperBound(starts, to);
+        for (int i = end - 1; i >= 0 && maxUntil[i] >= from; i--) {
+            RecurrenceRule rule = byStart[i];
+            if (rule.getUntil() >= from) {
+                rule.expand(from, to, day -> out.accept(day, rule));
+            }
+        }
+    }
+
+    private void reindex() {
+        byStart = rules.toArray(new RecurrenceRule[0]);
+        Arrays.sort(byStart, Comparator.comparingLong(RecurrenceRule::getStart));
+        starts = new long[byStart.length];
+        maxUntil = new long[byStart.length];
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < byStart.length; i++) {
+            starts[i] = byStart[i].getStart();
+            max = Math.max(max, byStart[i].getUntil());
+            maxUntil[i] = max;
+        }
+    }
+
+    private static int upperBound(long[] values, long key) {
+        int lo = 0, hi = values.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[mid] <= key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    static String format(RecurrenceRule rule) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(rule.getFrequency()).append('\t')
+                .append(rule.getInterval()).append('\t')
+                .append(rule.getStart()).append('\t')
+                .append(rule.getUntil() == Long.MAX_VALUE ? "" : String.valueOf(rule.getUntil())).append('\t');
+        long[] exceptions = rule.getExceptions();
+        for (int i = 0; i < exceptions.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(exceptions[i]);
+        }
+        sb.append('\t').append(LineEscape.escape(rule.getText()));
+        return sb.toString();
+    }
+
+    static RecurrenceRule parse(String line) {
+        String[] parts = line.split("\t", 6);
+        if (parts.length < 6) {
+            return null;
+        }
+        try {
+            long[] exceptions = parts[4].isEmpty() ? new long[0]
+                    : Arrays.stream(parts[4].split(",")).mapToLong(Long::parseLong).sorted().toArray();
+            return new RecurrenceRule(Long.parseLong(parts[2]),
+                    RecurrenceRule.Frequency.valueOf(parts[0]),
+                    Integer.parseInt(parts[1]),
+                    parts[3].isEmpty() ? Long.MAX_VALUE : Long.parseLong(parts[3]),
+                    LineEscape.unescape(parts[5]),
+                    exceptions);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
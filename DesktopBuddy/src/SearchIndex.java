@@ -0,0 +1,211 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+public class SearchIndex {
+
+    private static final int MAGIC = 0x53524348;
+    private static final int MAX_TERM = 64;
+
+    private static class Postings {
+        long[] days = new long[2];
+        int size;
+        boolean sorted = true;
+        long[] removed;
+        int removedSize;
+
+        void add(long day) {
+            if (size == days.length) {
+                days = Arrays.copyOf(days, size * 2);
+            }
+            if (size > 0 && day < days[size - 1]) {
+                sorted = false;
+            }
+            days[size++] = day;
+        }
+
+        void remove(long day) {
+            if (removed == null) {
+                removed = new long[2];
+            } else if (removedSize == removed.length) {
+                removed = Arrays.copyOf(removed, removedSize * 2);
+            }
+            removed[removedSize++] = day;
+        }
+
+        Postings sort() {
+            if (!sorted) {
+                Arrays.sort(days, 0, size);
+                sorted = true;
+            }
+            if (removedSize > 0) {
+                Arrays.sort(removed, 0, removedSize);
+                int n = 0;
+                for (int i = 0, j = 0; i < size; i++) {
+                    while (j < removedSize && removed[j] < days[i]) {
+                        j++;
+                    }
+                    if (j < removedSize && removed[j] == days[i]) {
+                        j++;
+                    } else {
+                        days[n++] = days[i];
+                    }
+                }
+                size = n;
+                removed = null;
+                removedSize = 0;
+            }
+            return this;
+        }
+    }
+
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+
+    public synchronized void add(long day, String text) {
+        for (String term : tokenize(text)) {
+            terms.computeIfAbsent(term, k -> new Postings()).add(day);
+        }
+    }
+
+    public synchronized void remove(long day, String text) {
+        for (String term : tokenize(text)) {
+            Postings postings = terms.get(term);
+            if (postings != null) {
+                postings.remove(day);
+            }
+        }
+    }
+
+    public synchronized void update(long day, String oldText, String newText) {
+        if (oldText != null) {
+            remove(day, oldText);
+        }
+        if (newText != null) {
+            add(day, newText);
+        }
+    }
+
+    public synchronized long[] search(String query) {
+        List<String> words = tokenize(query);
+        long[] result = null;
+        for (int i = 0; i < words.size() && (result == null || result.length > 0); i++) {
+            long[] days = i == words.size() - 1 ? prefixDays(words.get(i)) : exactDays(words.get(i));
+            result = result == null ? days : intersect(result, days);
+        }
+        return result == null ? new long[0] : result;
+    }
+
+    private long[] exactDays(String term) {
+        Postings postings = terms.get(term);
+        return postings == null ? new long[0] : distinct(postings.sort().days, postings.size);
+    }
+
+    private long[] prefixDays(String prefix) {
+        Map<String, Postings> matches = terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        if (matches.size() == 1) {
+            Postings only = matches.values().iterator().next().sort();
+            return distinct(only.days, only.size);
+        }
+        int total = 0;
+        for (Postings postings : matches.values()) {
+            total += postings.sort().size;
+        }
+        long[] all = new long[total];
+        int n = 0;
+        for (Postings postings : matches.values()) {
+            System.arraycopy(postings.days, 0, all, n, postings.size);
+            n += postings.size;
+        }
+        Arrays.sort(all);
+        return distinct(all, n);
+    }
+
+    private static long[] distinct(long[] sorted, int size) {
+        long[] out = new long[size];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (n == 0 || out[n - 1] != sorted[i]) {
+                out[n++] = sorted[i];
+            }
+        }
+        return n == size ? out : Arrays.copyOf(out, n);
+    }
+
+    private static long[] intersect(long[] a, long[] b) {
+        long[] out = new long[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean word = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                words.add(text.substring(start, Math.min(i, start + MAX_TERM)).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    public synchronized void save(File file, String fingerprint) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeUTF(fingerprint);
+            terms.values().removeIf(postings -> postings.sort().size == 0);
+            out.writeInt(terms.size());
+            for (Map.Entry<String, Postings> e : terms.entrySet()) {
+                Postings postings = e.getValue();
+                out.writeUTF(e.getKey());
+                out.writeInt(postings.size);
+                for (int i = 0; i < postings.size; i++) {
+                    out.writeLong(postings.days[i]);
+                }
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static SearchIndex load(File file, String fingerprint) {
+        if (!file.exists()) {
+            return null;
+        }
+        SearchIndex index = new SearchIndex();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || !in.readUTF().equals(fingerprint)) {
+                return null;
+            }
+            int count = in.readInt();
+            for (int t = 0; t < count; t++) {
+                String term = in.readUTF();
+                Postings postings = new Postings();
+                postings.size = in.readInt();
+                postings.days = new long[Math.max(2, postings.size)];
+                for (int i = 0; i < postings.size; i++) {
+                    postings.days[i] = in.readLong();
+                }
+                index.terms.put(term, postings);
+            }
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+        return index;
+    }
+}
@@ -0,0 +1,269 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.*;
+
+public class SessionLog {
+
+    private static final int MAGIC = 0x534c4f47;
+    private static final int STATS_MAGIC = 0x53535441;
+    private static final int HEADER_BYTES = 4;
+    private static final int RECORD_BYTES = 13;
+    private static final int READ_CHUNK = RECORD_BYTES * 4096;
+
+    private static SessionLog shared;
+
+    public static final class Stats {
+        private int completed;
+        private int aborted;
+        private long focusSeconds;
+
+        private void add(int completed, int aborted, long focusSeconds) {
+            this.completed += completed;
+            this.aborted += aborted;
+            this.focusSeconds += focusSeconds;
+        }
+
+        public int getCompleted() {
+            return completed;
+        }
+
+        public int getAborted() {
+            return aborted;
+        }
+
+        public long getFocusSeconds() {
+            return focusSeconds;
+        }
+    }
+
+    private static final Stats EMPTY = new Stats();
+
+    private final File statsFile;
+    private final FileChannel channel;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final TreeMap<Long, Stats> days = new TreeMap<>();
+    private final TreeMap<Long, Stats> weeks = new TreeMap<>();
+    private final TreeMap<YearMonth, Stats> months = new TreeMap<>();
+    private final Stats total = new Stats();
+    private long length;
+    private long streakEnd = Long.MIN_VALUE;
+    private int streak;
+    private int longestStreak;
+    private int activeDays;
+
+    public SessionLog(File file) throws IOException {
+        this.statsFile = new File(file.getPath() + ".stats");
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (size < HEADER_BYTES) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC);
+            header.flip();
+            channel.truncate(0);
+            channel.write(header, 0);
+            size = HEADER_BYTES;
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            channel.read(header, 0);
+            if (header.getInt(0) != MAGIC) {
+                channel.close();
+                throw new IOException(file + " is not a session log");
+            }
+        }
+        length = HEADER_BYTES + (size - HEADER_BYTES) / RECORD_BYTES * RECORD_BYTES;
+        long covered = loadStats(length);
+        if (covered < 0) {
+            days.clear();
+            covered = HEADER_BYTES;
+        }
+        replay(covered);
+        for (Map.Entry<Long, Stats> e : days.entrySet()) {
+            Stats day = e.getValue();
+            week(e.getKey()).add(day.completed, day.aborted, day.focusSeconds);
+            month(e.getKey()).add(day.completed, day.aborted, day.focusSeconds);
+            total.add(day.completed, day.aborted, day.focusSeconds);
+            if (day.completed > 0) {
+                activeDays++;
+                extendStreak(e.getKey());
+            }
+        }
+        if (covered < length) {
+            saveStats();
+        }
+    }
+
+    public static synchronized SessionLog shared() throws IOException {
+        if (shared == null) {
+            shared = new SessionLog(new File("sessions.log"));
+        }
+        return shared;
+    }
+
+    private void replay(long from) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(READ_CHUNK);
+        for (long at = from; at < length; at += buffer.limit()) {
+            buffer.clear();
+            buffer.limit((int) Math.min(READ_CHUNK, length - at));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, at + buffer.position()) < 0) {
+                    throw new EOFException();
+                }
+            }
+            buffer.flip();
+            while (buffer.remaining() >= RECORD_BYTES) {
+                long start = buffer.getLong();
+                int seconds = buffer.getInt();
+                boolean completed = buffer.get() != 0;
+                Stats day = days.computeIfAbsent(dayOf(start), k -> new Stats());
+                day.add(completed ? 1 : 0, completed ? 0 : 1, seconds);
+            }
+        }
+    }
+
+    public synchronized void append(long startMillis, long focusSeconds, boolean completed) throws IOException {
+        record.clear();
+        record.putLong(startMillis).putInt((int) focusSeconds).put((byte) (completed ? 1 : 0));
+        record.flip();
+        while (record.hasRemaining()) {
+            channel.write(record, length + record.position());
+        }
+        length += RECORD_BYTES;
+
+        long day = dayOf(startMillis);
+        int done = completed ? 1 : 0;
+        int abandoned = completed ? 0 : 1;
+        Stats dayStats = days.computeIfAbsent(day, k -> new Stats());
+        if (completed && dayStats.completed == 0) {
+            activeDays++;
+        }
+        dayStats.add(done, abandoned, focusSeconds);
+        week(day).add(done, abandoned, focusSeconds);
+        month(day).add(done, abandoned, focusSeconds);
+        total.add(done, abandoned, focusSeconds);
+        if (completed) {
+            if (day < streakEnd) {
+                recomputeStreaks();
+            } else {
+                extendStreak(day);
+            }
+        }
+        saveStats();
+    }
+
+    private void extendStreak(long day) {
+        if (day == streakEnd) {
+            return;
+        }
+        streak = day == streakEnd + 1 ? streak + 1 : 1;
+        streakEnd = day;
+        longestStreak = Math.max(longestStreak, streak);
+    }
+
+    private void recomputeStreaks() {
+        streakEnd = Long.MIN_VALUE;
+        streak = 0;
+        longestStreak = 0;
+        for (Map.Entry<Long, Stats> e : days.entrySet()) {
+            if (e.getValue().completed > 0) {
+                extendStreak(e.getKey());
+            }
+        }
+    }
+
+    private long dayOf(long millis) {
+        return Instant.ofEpochMilli(millis).atZone(zone).toLocalDate().toEpochDay();
+    }
+
+    private static long weekStart(long day) {
+        return day - Math.floorMod(day + 3, 7);
+    }
+
+    private Stats week(long day) {
+        return weeks.computeIfAbsent(weekStart(day), k -> new Stats());
+    }
+
+    private Stats month(long day) {
+        return months.computeIfAbsent(YearMonth.from(LocalDate.ofEpochDay(day)), k -> new Stats());
+    }
+
+    public synchronized Stats getDay(LocalDate date) {
+        return days.getOrDefault(date.toEpochDay(), EMPTY);
+    }
+
+    public synchronized Stats getWeek(LocalDate date) {
+        return weeks.getOrDefault(weekStart(date.toEpochDay()), EMPTY);
+    }
+
+    public synchronized Stats getMonth(YearMonth month) {
+        return months.getOrDefault(month, EMPTY);
+    }
+
+    public synchronized Stats getTotal() {
+        return total;
+    }
+
+    public synchronized int getCurrentStreak(LocalDate today) {
+        return streakEnd >= today.toEpochDay() - 1 ? streak : 0;
+    }
+
+    public synchronized int getLongestStreak() {
+        return longestStreak;
+    }
+
+    public synchronized int getActiveDays() {
+        return activeDays;
+    }
+
+    public synchronized NavigableMap<YearMonth, Stats> getMonths() {
+        return new TreeMap<>(months);
+    }
+
+    private long loadStats(long logLength) {
+        if (!statsFile.exists()) {
+            return -1;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(statsFile), 1 << 16))) {
+            if (in.readInt() != STATS_MAGIC) {
+                return -1;
+            }
+            long covered = in.readLong();
+            if (covered < HEADER_BYTES || covered > logLength || (covered - HEADER_BYTES) % RECORD_BYTES != 0) {
+                return -1;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                Stats day = new Stats();
+                long key = in.readLong();
+                day.add(in.readInt(), in.readInt(), in.readLong());
+                days.put(key, day);
+            }
+            return covered;
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    private void saveStats() throws IOException {
+        File tmp = new File(statsFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16))) {
+            out.writeInt(STATS_MAGIC);
+            out.writeLong(length);
+            out.writeInt(days.size());
+            for (Map.Entry<Long, Stats> e : days.entrySet()) {
+                out.writeLong(e.getKey());
+                out.writeInt(e.getValue().completed);
+                out.writeInt(e.getValue().aborted);
+                out.writeLong(e.getValue().focusSeconds);
+            }
+        }
+        Files.move(tmp.toPath(), statsFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,67 @@
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public class Task {
+
+    public static final String OPEN = "• ";
+    public static final String DONE = "✓ ";
+
+    private final String text;
+    private final boolean done;
+    private final List<String> tags = new ArrayList<>();
+    private int priority;
+    private LocalDate due;
+
+    private Task(String text, boolean done) {
+        this.text = text;
+        this.done = done;
+    }
+
+    public static Task parse(String row) {
+        boolean done = row.startsWith(DONE);
+        String text = done || row.startsWith(OPEN) ? row.substring(2) : row;
+        Task task = new Task(text, done);
+
+        for (String word : text.split("\\s+")) {
+            if (word.length() > 1 && word.charAt(0) == '#') {
+                task.tags.add(word.substring(1).toLowerCase(Locale.ROOT));
+            } else if (word.length() == 2 && word.charAt(0) == '!' && Character.isDigit(word.charAt(1))) {
+                task.priority = word.charAt(1) - '0';
+            } else if (word.startsWith("due:")) {
+                try {
+                    task.due = LocalDate.parse(word.substring(4));
+                } catch (DateTimeParseException ignored) {
+                }
+            }
+        }
+        return task;
+    }
+
+    public static String toggleDone(String row) {
+        Task task = parse(row);
+        return (task.done ? OPEN : DONE) + task.text;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public LocalDate getDue() {
+        return due;
+    }
+}
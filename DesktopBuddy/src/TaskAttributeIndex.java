@@ -0,0 +1,229 @@
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+public class TaskAttributeIndex extends TaskIdIndex {
+
+    private Bitmap all = new Bitmap();
+    private Bitmap done = new Bitmap();
+    private final Map<String, Bitmap> tags = new HashMap<>();
+    private final Bitmap[] priorities = new Bitmap[10];
+    private final TreeMap<Long, Bitmap> due = new TreeMap<>();
+
+    public TaskAttributeIndex(TaskListModel model) {
+        super(model);
+        for (int i = 0; i < priorities.length; i++) {
+            priorities[i] = new Bitmap();
+        }
+    }
+
+    @Override
+    protected void index(int id, String row) {
+        Task task = Task.parse(row);
+        all.add(id);
+        if (task.isDone()) {
+            done.add(id);
+        }
+        for (String tag : task.getTags()) {
+            tags.computeIfAbsent(tag, k -> new Bitmap()).add(id);
+        }
+        priorities[task.getPriority()].add(id);
+        if (task.getDue() != null) {
+            due.computeIfAbsent(task.getDue().toEpochDay(), k -> new Bitmap()).add(id);
+        }
+    }
+
+    @Override
+    protected void dropDead() {
+        Bitmap gone = new Bitmap();
+        for (int id = dead.nextSetBit(0); id >= 0; id = dead.nextSetBit(id + 1)) {
+            gone.add(id);
+        }
+        all = all.andNot(gone);
+        done = done.andNot(gone);
+        tags.replaceAll((k, v) -> v.andNot(gone));
+        tags.values().removeIf(Bitmap::isEmpty);
+        for (int i = 0; i < priorities.length; i++) {
+            priorities[i] = priorities[i].andNot(gone);
+        }
+        due.replaceAll((k, v) -> v.andNot(gone));
+        due.values().removeIf(Bitmap::isEmpty);
+    }
+
+    @Override
+    protected void unindex(int id, String row) {
+        if (row == null) {
+            all.remove(id);
+            done.remove(id);
+            tags.values().forEach(b -> b.remove(id));
+            tags.values().removeIf(Bitmap::isEmpty);
+            for (Bitmap b : priorities) {
+                b.remove(id);
+            }
+            due.values().forEach(b -> b.remove(id));
+            due.values().removeIf(Bitmap::isEmpty);
+            return;
+        }
+        Task task = Task.parse(row);
+        all.remove(id);
+        done.remove(id);
+        for (String tag : task.getTags()) {
+            Bitmap b = tags.get(tag);
+            if (b != null) {
+                b.remove(id);
+                if (b.isEmpty()) {
+                    tags.remove(tag);
+                }
+            }
+        }
+        priorities[task.getPriority()].remove(id);
+        if (task.getDue() != null) {
+            long day = task.getDue().toEpochDay();
+            Bitmap b = due.get(day);
+            if (b != null) {
+                b.remove(id);
+                if (b.isEmpty()) {
+                    due.remove(day);
+                }
+            }
+        }
+    }
+
+    public int[] query(String filter) {
+        Parser parser = new Parser(filter);
+        Bitmap result = parser.expr();
+        if (parser.peek() != null) {
+            throw new IllegalArgumentException("Unexpected '" + parser.peek() + "'");
+        }
+        int[] ids = result.toArray();
+        return rowsOf(ids, ids.length);
+    }
+
+    private Bitmap atom(String token) {
+        String t = token.toLowerCase(Locale.ROOT);
+        if (t.startsWith("#") && t.length() > 1) {
+            return tags.getOrDefault(t.substring(1), new Bitmap());
+        }
+        if (t.equals("done")) {
+            return done;
+        }
+        if (t.equals("open")) {
+            return all.andNot(done);
+        }
+        if (t.equals("overdue")) {
+            return dueRange("<", LocalDate.now().toEpochDay()).andNot(done);
+        }
+        if (t.length() == 2 && t.charAt(0) == '!' && Character.isDigit(t.charAt(1))) {
+            return priorities[t.charAt(1) - '0'];
+        }
+        if (t.startsWith("priority")) {
+            String op = operator(t, "priority".length());
+            int level = Integer.parseInt(t.substring("priority".length() + op.length()));
+            List<Bitmap> matching = new ArrayList<>();
+            for (int p = 0; p < priorities.length; p++) {
+                if (compare(op, Integer.compare(p, level))) {
+                    matching.add(priorities[p]);
+                }
+            }
+            return Bitmap.orAll(matching);
+        }
+        if (t.startsWith("due")) {
+            String op = operator(t, "due".length());
+            try {
+                return dueRange(op, LocalDate.parse(t.substring("due".length() + op.length())).toEpochDay());
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Bad date in '" + token + "'");
+            }
+        }
+        throw new IllegalArgumentException("Unknown filter '" + token + "'");
+    }
+
+    private Bitmap dueRange(String op, long day) {
+        Map<Long, Bitmap> range;
+        switch (op) {
+            case "<": range = due.headMap(day, false); break;
+            case "<=": range = due.headMap(day, true); break;
+            case ">": range = due.tailMap(day, false); break;
+            case ">=": range = due.tailMap(day, true); break;
+            default: range = due.subMap(day, true, day, true); break;
+        }
+        return Bitmap.orAll(range.values());
+    }
+
+    private static String operator(String token, int at) {
+        for (String op : new String[]{">=", "<=", "=", ">", "<", ":"}) {
+            if (token.startsWith(op, at)) {
+                return op;
+            }
+        }
+        throw new IllegalArgumentException("Missing comparison in '" + token + "'");
+    }
+
+    private static boolean compare(String op, int cmp) {
+        switch (op) {
+            case ">=": return cmp >= 0;
+            case "<=": return cmp <= 0;
+            case ">": return cmp > 0;
+            case "<": return cmp < 0;
+            default: return cmp == 0;
+        }
+    }
+
+    private class Parser {
+
+        private final List<String> tokens = new ArrayList<>();
+        private int pos;
+
+        Parser(String filter) {
+            for (String word : filter.replace("(", " ( ").replace(")", " ) ").trim().split("\\s+")) {
+                if (!word.isEmpty()) {
+                    tokens.add(word);
+                }
+            }
+        }
+
+        String peek() {
+            return pos < tokens.size() ? tokens.get(pos) : null;
+        }
+
+        Bitmap expr() {
+            Bitmap result = and();
+            while ("or".equalsIgnoreCase(peek())) {
+                pos++;
+                result = result.or(and());
+            }
+            return result;
+        }
+
+        Bitmap and() {
+            Bitmap result = unary();
+            while (peek() != null && !"or".equalsIgnoreCase(peek()) && !")".equals(peek())) {
+                if ("and".equalsIgnoreCase(peek())) {
+                    pos++;
+                }
+                result = result.and(unary());
+            }
+            return result;
+        }
+
+        Bitmap unary() {
+            String token = peek();
+            if (token == null) {
+                throw new IllegalArgumentException("Filter ends too early");
+            }
+            pos++;
+            if (token.equalsIgnoreCase("not")) {
+                return all.andNot(unary());
+            }
+            if (token.equals("(")) {
+                Bitmap inner = expr();
+                if (!")".equals(peek())) {
+                    throw new IllegalArgumentException("Missing ')'");
+                }
+                pos++;
+                return inner;
+            }
+            return atom(token);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+import java.util.Arrays;
+import java.util.BitSet;
+
+public abstract class TaskIdIndex implements ListDataListener {
+
+    private static final int ID_GAP = 8;
+    private static final int MIN_SPACING = 4;
+
+    protected final TaskListModel model;
+    protected final BitSet dead = new BitSet();
+    private int deadCount;
+
+    protected int[] order = new int[16];
+    protected int size;
+    protected int nextId = ID_GAP;
+
+    protected TaskIdIndex(TaskListModel model) {
+        this.model = model;
+    }
+
+    protected abstract void index(int id, String row);
+
+    protected abstract void unindex(int id, String row);
+
+    protected abstract void dropDead();
+
+    @Override
+    public void intervalAdded(ListDataEvent e) {
+        for (int i = e.getIndex0(); i <= e.getIndex1(); i++) {
+            insert(i, model.get(i), e.getIndex1() - i);
+        }
+    }
+
+    @Override
+    public void intervalRemoved(ListDataEvent e) {
+        int first = e.getIndex0();
+        int count = e.getIndex1() - first + 1;
+        String previous = model.getPrevious();
+        if (count == 1 && previous != null) {
+            unindex(order[first], previous);
+        } else {
+            for (int i = first; i < first + count; i++) {
+                dead.set(order[i]);
+            }
+            deadCount += count;
+        }
+        System.arraycopy(order, first + count, order, first, size - first - count);
+        size -= count;
+        if (deadCount > 1024 && deadCount > size / 2) {
+            purge();
+        }
+    }
+
+    @Override
+    public void contentsChanged(ListDataEvent e) {
+        String previous = e.getIndex0() == e.getIndex1() ? model.getPrevious() : null;
+        for (int i = e.getIndex0(); i <= e.getIndex1(); i++) {
+            unindex(order[i], previous);
+            index(order[i], model.get(i));
+        }
+    }
+
+    private void insert(int row, String text, int pending) {
+        int id;
+        if (row == size) {
+            id = nextId;
+            nextId += ID_GAP;
+        } else {
+            id = freeId(row);
+            if (id < 0) {
+                relabel(row, pending);
+                id = freeId(row);
+            }
+        }
+
+        if (size == order.length) {
+            order = Arrays.copyOf(order, size * 2);
+        }
+        System.arraycopy(order, row, order, row + 1, size - row);
+        order[row] = id;
+        size++;
+
+        index(id, text);
+    }
+
+    private int freeId(int row) {
+        int before = row == 0 ? 0 : order[row - 1];
+        int mid = before + (order[row] - before) / 2;
+        for (int id = mid; id > before; id--) {
+            if (!dead.get(id)) {
+                return id;
+            }
+        }
+        for (int id = mid + 1; id < order[row]; id++) {
+            if (!dead.get(id)) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    private void relabel(int row, int pending) {
+        int lo = row;
+        int hi = row;
+        int low;
+        int high;
+        for (int width = 1; ; width *= 2) {
+            lo = Math.max(0, row - width);
+            hi = Math.min(size, row + width);
+            low = lo == 0 ? 0 : order[lo - 1];
+            high = hi == size ? Math.max(nextId, low + (hi - lo + 2) * ID_GAP) : order[hi];
+            if (high - low >= (hi - lo + 2) * MIN_SPACING) {
+                break;
+            }
+        }
+        if (hi == size) {
+            nextId = high + ID_GAP;
+        }
+        if (dead.nextSetBit(low + 1) >= 0 && dead.nextSetBit(low + 1) < high) {
+            purge();
+        }
+
+        int step = (high - low) / (hi - lo + 2);
+        for (int i = lo; i < hi; i++) {
+            unindex(order[i], model.get(i < row ? i : i + 1 + pending));
+        }
+        for (int i = lo; i < hi; i++) {
+            order[i] = low + (i - lo + (i < row ? 1 : 2)) * step;
+            index(order[i], model.get(i < row ? i : i + 1 + pending));
+        }
+    }
+
+    protected void purge() {
+        dropDead();
+        dead.clear();
+        deadCount = 0;
+    }
+
+    protected int[] rowsOf(int[] ids, int count) {
+        int[] rows = new int[count];
+        int n = 0;
+        int from = 0;
+        for (int i = 0; i < count; i++) {
+            if (!dead.get(ids[i])) {
+                int row = Arrays.binarySearch(order, from, size, ids[i]);
+                if (row >= 0) {
+                    rows[n++] = row;
+                    from = row + 1;
+                }
+            }
+        }
+        return Arrays.copyOf(rows, n);
+    }
+
+    public int size() {
+        return size;
+    }
+}
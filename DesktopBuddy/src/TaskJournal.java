@@ -0,0 +1,414 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+public class TaskJournal {
+
+    public static final int DEFAULT_COMPACT_THRESHOLD = 1000;
+    public static final int LOAD_CHUNK = 8192;
+
+    private static final String GENERATION = "#gen\t";
+    private static final Map<Path, ReentrantLock> LOCKS = new ConcurrentHashMap<>();
+
+    private final Path snapshot;
+    private final Path snapshotTmp;
+    private final Path journal;
+    private final Path journalTmp;
+    private final Path lockFile;
+    private final ReentrantLock localLock;
+    private final int compactThreshold;
+
+    private FileChannel lockChannel;
+    private FileLock fileLock;
+    private long generation;
+    private long readOffset;
+    private int records;
+    private int snapshotRows;
+
+    public TaskJournal(File snapshotFile) {
+        this(snapshotFile, DEFAULT_COMPACT_THRESHOLD);
+    }
+
+    public TaskJournal(File snapshotFile, int compactThreshold) {
+        snapshot = snapshotFile.toPath().toAbsolutePath();
+        snapshotTmp = sibling(snapshot, ".tmp");
+        journal = sibling(snapshot, ".journal");
+        journalTmp = sibling(snapshot, ".journal.tmp");
+        lockFile = sibling(snapshot, ".lock");
+        localLock = LOCKS.computeIfAbsent(lockFile, k -> new ReentrantLock());
+        this.compactThreshold = compactThreshold;
+    }
+
+    private static Path sibling(Path p, String suffix) {
+        return p.resolveSibling(p.getFileName() + suffix);
+    }
+
+    public Path getJournalPath() {
+        return journal;
+    }
+
+    public void lock() throws IOException {
+        localLock.lock();
+        if (localLock.getHoldCount() > 1) {
+            return;
+        }
+        try {
+            lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            fileLock = lockChannel.lock();
+            recover();
+        } catch (IOException | RuntimeException e) {
+            releaseFileLock();
+            localLock.unlock();
+            throw e;
+        }
+    }
+
+    public void unlock() {
+        if (localLock.getHoldCount() == 1) {
+            releaseFileLock();
+        }
+        localLock.unlock();
+    }
+
+    private void releaseFileLock() {
+        try {
+            if (fileLock != null) {
+                fileLock.release();
+            }
+            if (lockChannel != null) {
+                lockChannel.close();
+            }
+        } catch (IOException ignored) {
+        }
+        fileLock = null;
+        lockChannel = null;
+    }
+
+    public List<String> load(Consumer<List<String>> chunks) throws IOException {
+        lock();
+        try {
+            snapshotRows = 0;
+            if (Files.exists(snapshot)) {
+                readLines(snapshot, LOAD_CHUNK, chunk -> {
+                    snapshotRows += chunk.size();
+                    chunks.accept(chunk);
+                });
+            }
+            generation = readGeneration();
+            List<String> pending = readJournal(0);
+            records = pending.size();
+            return pending;
+        } finally {
+            unlock();
+        }
+    }
+
+    public List<String> catchUp() throws IOException {
+        if (readGeneration() != generation) {
+            return null;
+        }
+        List<String> remote = readJournal(readOffset);
+        records += remote.size();
+        return remote;
+    }
+
+    public List<String> reload() throws IOException {
+        List<String> rows = new ArrayList<>();
+        if (Files.exists(snapshot)) {
+            readLines(snapshot, LOAD_CHUNK, rows::addAll);
+        }
+        snapshotRows = rows.size();
+        generation = readGeneration();
+        List<String> pending = readJournal(0);
+        records = pending.size();
+        Rows list = new ListRows(rows);
+        for (String record : pending) {
+            apply(list, record);
+        }
+        return rows;
+    }
+
+    public long[] fingerprint() throws IOException {
+        long[] f = new long[4];
+        if (Files.exists(snapshot)) {
+            f[0] = Files.size(snapshot);
+            f[1] = Files.getLastModifiedTime(snapshot).toMillis();
+        }
+        if (Files.exists(journal)) {
+            f[2] = Files.size(journal);
+            f[3] = Files.getLastModifiedTime(journal).toMillis();
+        }
+        return f;
+    }
+
+    private void recover() throws IOException {
+        if (Files.exists(snapshotTmp)) {
+            Files.delete(snapshotTmp);
+            Files.deleteIfExists(journalTmp);
+        } else if (Files.exists(journalTmp)) {
+            Files.move(journalTmp, journal, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private long readGeneration() throws IOException {
+        if (!Files.exists(journal)) {
+            return 0;
+        }
+        try (FileChannel ch = FileChannel.open(journal, StandardOpenOption.READ)) {
+            ByteBuffer buf = ByteBuffer.allocate(32);
+            ch.read(buf, 0);
+            String head = new String(buf.array(), 0, buf.position(), StandardCharsets.UTF_8);
+            int end = head.indexOf('\n');
+            if (!head.startsWith(GENERATION) || end < 0) {
+                return 0;
+            }
+            try {
+                return Long.parseLong(head.substring(GENERATION.length(), end));
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+    }
+
+    private List<String> readJournal(long from) throws IOException {
+        List<String> lines = new ArrayList<>();
+        if (!Files.exists(journal)) {
+            readOffset = 0;
+            return lines;
+        }
+        try (FileChannel ch = FileChannel.open(journal, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size <= from) {
+                return lines;
+            }
+            ByteBuffer buf = ByteBuffer.allocate((int) (size - from));
+            while (buf.hasRemaining()) {
+                if (ch.read(buf, from + buf.position()) < 0) {
+                    break;
+                }
+            }
+            byte[] bytes = buf.array();
+            int start = 0;
+            for (int i = 0; i < buf.position(); i++) {
+                if (bytes[i] == '\n') {
+                    String line = decode(bytes, start, i);
+                    if (!line.startsWith(GENERATION)) {
+                        lines.add(line);
+                    }
+                    start = i + 1;
+                }
+            }
+            readOffset = from + start;
+        }
+        return lines;
+    }
+
+    public static void readLines(Path file, int chunkSize, Consumer<List<String>> chunks) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buf = ByteBuffer.allocate(1 << 16);
+            List<String> chunk = new ArrayList<>(Math.min(chunkSize, LOAD_CHUNK));
+            boolean eof = false;
+            while (!eof) {
+                eof = ch.read(buf) < 0;
+                byte[] bytes = buf.array();
+                int start = 0;
+                int end = buf.position();
+                for (int i = 0; i < end; i++) {
+                    if (bytes[i] == '\n') {
+                        chunk.add(decode(bytes, start, i));
+                        start = i + 1;
+                        if (chunk.size() >= chunkSize) {
+                            chunks.accept(chunk);
+                            chunk = new ArrayList<>(chunkSize);
+                        }
+                    }
+                }
+                if (eof && start < end) {
+                    chunk.add(decode(bytes, start, end));
+                    start = end;
+                }
+                buf.position(start);
+                buf.limit(end);
+                buf.compact();
+                if (!buf.hasRemaining()) {
+                    ByteBuffer bigger = ByteBuffer.allocate(buf.capacity() * 2);
+                    buf.flip();
+                    bigger.put(buf);
+                    buf = bigger;
+                }
+            }
+            if (!chunk.isEmpty()) {
+                chunks.accept(chunk);
+            }
+        }
+    }
+
+    private static String decode(byte[] bytes, int start, int end) {
+        if (end > start && bytes[end - 1] == '\r') {
+            end--;
+        }
+        return new String(bytes, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    public interface Rows {
+        int size();
+
+        String get(int index);
+
+        void add(int index, String row);
+
+        void set(int index, String row);
+
+        void remove(int index);
+    }
+
+    private static class ListRows implements Rows {
+
+        private final List<String> rows;
+
+        ListRows(List<String> rows) {
+            this.rows = rows;
+        }
+
+        public int size() {
+            return rows.size();
+        }
+
+        public String get(int index) {
+            return rows.get(index);
+        }
+
+        public void add(int index, String row) {
+            rows.add(index, row);
+        }
+
+        public void set(int index, String row) {
+            rows.set(index, row);
+        }
+
+        public void remove(int index) {
+            rows.remove(index);
+        }
+    }
+
+    public static boolean apply(Rows rows, String record) {
+        if (record.length() < 2) {
+            return false;
+        }
+        char op = record.charAt(0);
+        int tab = record.indexOf('\t');
+        try {
+            int index = Integer.parseInt(record.substring(1, tab > 0 ? tab : record.length()));
+            if (op == '+' && tab > 0) {
+                rows.add(Math.max(0, Math.min(index, rows.size())), LineEscape.unescape(record.substring(tab + 1)));
+                return true;
+            } else if (op == '=' && tab > 0) {
+                int old = record.indexOf('\t', tab + 1);
+                String row = LineEscape.unescape(record.substring(tab + 1, old > 0 ? old : record.length()));
+                int at = old > 0 ? locate(rows, index, LineEscape.unescape(record.substring(old + 1))) : index;
+                if (at >= 0 && at < rows.size()) {
+                    rows.set(at, row);
+                }
+                return true;
+            } else if (op == '-') {
+                int at = tab > 0 ? locate(rows, index, LineEscape.unescape(record.substring(tab + 1))) : index;
+                if (at >= 0 && at < rows.size()) {
+                    rows.remove(at);
+                }
+                return true;
+            }
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        return false;
+    }
+
+    private static int locate(Rows rows, int index, String row) {
+        int size = rows.size();
+        for (int d = 0; index - d >= 0 || index + d < size; d++) {
+            if (index - d >= 0 && index - d < size && rows.get(index - d).equals(row)) {
+                return index - d;
+            }
+            if (d > 0 && index + d >= 0 && index + d < size && rows.get(index + d).equals(row)) {
+                return index + d;
+            }
+        }
+        return -1;
+    }
+
+    static String addRecord(int index, String task) {
+        return "+" + index + "\t" + LineEscape.escape(task);
+    }
+
+    static String setRecord(int index, String task, String old) {
+        return "=" + index + "\t" + LineEscape.escape(task) + "\t" + LineEscape.escape(old);
+    }
+
+    static String removeRecord(int index, String task) {
+        return "-" + index + "\t" + LineEscape.escape(task);
+    }
+
+    static String inverseRecord(String record) {
+        char op = record.charAt(0);
+        if (op == '+') {
+            return "-" + record.substring(1);
+        } else if (op == '-') {
+            return "+" + record.substring(1);
+        }
+        int tab = record.indexOf('\t');
+        int old = record.indexOf('\t', tab + 1);
+        return record.substring(0, tab + 1) + record.substring(old + 1) + record.substring(tab, old);
+    }
+
+    public void append(List<String> batch) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (String record : batch) {
+            sb.append(record).append('\n');
+        }
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        try (OutputStream out = new FileOutputStream(journal.toFile(), true)) {
+            out.write(bytes);
+        }
+        readOffset += bytes.length;
+        records += batch.size();
+    }
+
+    public boolean needsCompaction() {
+        return records >= compactThreshold && records >= snapshotRows / 4;
+    }
+
+    public void compact() throws IOException {
+        List<String> rows = reload();
+        long next = generation + 1;
+        writeLines(snapshotTmp, rows);
+        writeLines(journalTmp, Collections.singletonList(GENERATION + next));
+        Files.move(snapshotTmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.move(journalTmp, journal, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        generation = next;
+        readOffset = Files.size(journal);
+        records = 0;
+        snapshotRows = rows.size();
+    }
+
+    private static void writeLines(Path file, List<String> lines) throws IOException {
+        try (FileOutputStream fos = new FileOutputStream(file.toFile());
+             Writer w = new BufferedWriter(new OutputStreamWriter(fos, StandardCharsets.UTF_8))) {
+            for (String line : lines) {
+                w.write(line);
+                w.write('\n');
+            }
+            w.flush();
+            fos.getFD().sync();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+import javax.swing.AbstractListModel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public abstract class TaskListModel extends AbstractListModel<String> implements TaskJournal.Rows {
+
+    private String previous;
+
+    public String getPrevious() {
+        return previous;
+    }
+
+    protected void fireReplaced(int index, String old) {
+        previous = old;
+        try {
+            fireContentsChanged(this, index, index);
+        } finally {
+            previous = null;
+        }
+    }
+
+    protected void fireRemoved(int index, String old) {
+        previous = old;
+        try {
+            fireIntervalRemoved(this, index, index);
+        } finally {
+            previous = null;
+        }
+    }
+
+    public int size() {
+        return getSize();
+    }
+
+    public String get(int index) {
+        return getElementAt(index);
+    }
+
+    public void add(String row) {
+        add(getSize(), row);
+    }
+
+    public abstract void addAll(Collection<String> chunk);
+
+    public abstract void clear();
+
+    public List<String> snapshot() {
+        List<String> rows = new ArrayList<>(getSize());
+        for (int i = 0; i < getSize(); i++) {
+            rows.add(getElementAt(i));
+        }
+        return rows;
+    }
+}
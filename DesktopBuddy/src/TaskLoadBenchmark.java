@@ -0,0 +1,90 @@
+import javax.swing.*;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Scanner;
+
+public class TaskLoadBenchmark {
+
+    private static final int[] SIZES = {10_000, 50_000, 200_000, 1_000_000};
+    private static final int RUNS = 5;
+
+    private static int events;
+
+    public static void main(String[] args) throws Exception {
+        System.out.printf("%10s %12s %16s %12s %16s%n", "rows", "legacy ms", "legacy events", "chunked ms", "chunked events");
+        for (int rows : SIZES) {
+            Path file = Files.createTempFile("tasks", ".txt");
+            try {
+                write(file, rows);
+                loadLegacy(file);
+                loadChunked(file);
+
+                long legacy = Long.MAX_VALUE;
+                long chunked = Long.MAX_VALUE;
+                int legacyEvents = 0;
+                int chunkedEvents = 0;
+                for (int i = 0; i < RUNS; i++) {
+                    long t = System.nanoTime();
+                    legacyEvents = loadLegacy(file);
+                    legacy = Math.min(legacy, System.nanoTime() - t);
+
+                    t = System.nanoTime();
+                    chunkedEvents = loadChunked(file);
+                    chunked = Math.min(chunked, System.nanoTime() - t);
+                }
+                System.out.printf("%10d %12.1f %16d %12.1f %16d%n", rows,
+                        legacy / 1e6, legacyEvents, chunked / 1e6, chunkedEvents);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static void write(Path file, int rows) throws IOException {
+        try (Writer w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < rows; i++) {
+                w.write("• Task number " + i + " for the benchmark list\n");
+            }
+        }
+    }
+
+    private static int loadLegacy(Path file) throws IOException {
+        DefaultListModel<String> model = new DefaultListModel<>();
+        events = 0;
+        model.addListDataListener(COUNTER);
+        new JList<>(model);
+        try (Scanner sc = new Scanner(file.toFile(), StandardCharsets.UTF_8)) {
+            while (sc.hasNextLine()) {
+                model.addElement(sc.nextLine());
+            }
+        }
+        return events;
+    }
+
+    private static int loadChunked(Path file) throws IOException {
+        TaskListModel model = new ArrayTaskListModel();
+        events = 0;
+        model.addListDataListener(COUNTER);
+        new JList<>(model);
+        TaskJournal.readLines(file, TaskJournal.LOAD_CHUNK, model::addAll);
+        return events;
+    }
+
+    private static final ListDataListener COUNTER = new ListDataListener() {
+        public void intervalAdded(ListDataEvent e) {
+            events++;
+        }
+
+        public void intervalRemoved(ListDataEvent e) {
+            events++;
+        }
+
+        public void contentsChanged(ListDataEvent e) {
+            events++;
+        }
+    };
+}
@@ -0,0 +1,255 @@
+import javax.swing.*;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+public class TaskPersistence implements Closeable {
+
+    public interface Listener {
+        void remoteChanges(List<String> records);
+
+        void reloaded(List<String> rows, List<String> unsaved);
+
+        void saveFailed(IOException e);
+    }
+
+    private static final long POLL_MILLIS = 1000;
+    private static final Object STOP = new Object();
+    private static final Object WAKE = new Object();
+    private static final Map<Path, Set<TaskPersistence>> PEERS = new ConcurrentHashMap<>();
+
+    private final TaskJournal journal;
+    private final Path journalPath;
+    private final Listener listener;
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private final Deque<Edit> unsaved = new ArrayDeque<>();
+    private final Thread worker;
+    private volatile long savedSeq;
+    private long nextSeq;
+    private WatchService watcher;
+    private UndoHistory history;
+    private boolean stale;
+
+    public TaskPersistence(File file, Listener listener) {
+        this.journal = new TaskJournal(file);
+        this.journalPath = journal.getJournalPath();
+        this.listener = listener;
+        worker = new Thread(this::run, "task-persistence");
+        worker.setDaemon(true);
+    }
+
+    public List<String> load(Consumer<List<String>> chunks) throws IOException {
+        return journal.load(chunks);
+    }
+
+    public UndoHistory loadHistory(File file, long budget) throws IOException {
+        journal.lock();
+        try {
+            return UndoHistory.load(file, budget);
+        } finally {
+            journal.unlock();
+        }
+    }
+
+    public void start(UndoHistory history) {
+        this.history = history;
+        PEERS.computeIfAbsent(journalPath, k -> ConcurrentHashMap.newKeySet()).add(this);
+        try {
+            watcher = FileSystems.getDefault().newWatchService();
+            journalPath.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            Thread watch = new Thread(this::watch, "task-persistence-watch");
+            watch.setDaemon(true);
+            watch.start();
+        } catch (IOException | UnsupportedOperationException e) {
+            watcher = null;
+        }
+        worker.start();
+    }
+
+    public long[] fingerprint() throws IOException {
+        return journal.fingerprint();
+    }
+
+    public void added(int index, String task) {
+        submit(TaskJournal.addRecord(index, task));
+    }
+
+    public void addedAll(int index, List<String> tasks) {
+        List<String> records = new ArrayList<>(tasks.size());
+        for (String task : tasks) {
+            records.add(TaskJournal.addRecord(index++, task));
+        }
+        submit(records);
+    }
+
+    public void changed(int index, String task, String old) {
+        submit(TaskJournal.setRecord(index, task, old));
+    }
+
+    public void removed(int index, String task) {
+        submit(TaskJournal.removeRecord(index, task));
+    }
+
+    public void edited(String record) {
+        submit(record);
+    }
+
+    private void submit(String record) {
+        submit(Collections.singletonList(record));
+    }
+
+    private void submit(List<String> records) {
+        while (!unsaved.isEmpty() && unsaved.peekFirst().seq <= savedSeq) {
+            unsaved.pollFirst();
+        }
+        Edit edit = new Edit(++nextSeq, records, history.drain());
+        unsaved.addLast(edit);
+        queue.add(edit);
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (journalPath.getFileName().equals(event.context())) {
+                        queue.add(WAKE);
+                    }
+                }
+                if (!key.reset()) {
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            return;
+        }
+    }
+
+    private void run() {
+        List<Object> batch = new ArrayList<>();
+        List<String> records = new ArrayList<>();
+        List<String> undoLines = new ArrayList<>();
+        try {
+            while (true) {
+                boolean retry = !records.isEmpty() || !undoLines.isEmpty();
+                Object first = watcher == null || retry ? queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS) : queue.take();
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch);
+                }
+
+                boolean stop = false;
+                long seq = savedSeq;
+                for (Object item : batch) {
+                    if (item == STOP) {
+                        stop = true;
+                    } else if (item instanceof Edit) {
+                        records.addAll(((Edit) item).records);
+                        undoLines.addAll(((Edit) item).undoLines);
+                        seq = ((Edit) item).seq;
+                    }
+                }
+                batch.clear();
+                sync(records, undoLines, seq);
+
+                if (stop) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void sync(List<String> records, List<String> undoLines, long seq) {
+        List<String> remote;
+        List<String> rows = null;
+        boolean appended = !records.isEmpty();
+        try {
+            journal.lock();
+            try {
+                remote = journal.catchUp();
+                if (!records.isEmpty()) {
+                    journal.append(records);
+                    records.clear();
+                }
+                history.write(undoLines);
+                undoLines.clear();
+                if (remote == null || stale || (!remote.isEmpty() && appended)) {
+                    rows = journal.reload();
+                }
+                if (journal.needsCompaction()) {
+                    journal.compact();
+                }
+            } finally {
+                journal.unlock();
+            }
+        } catch (IOException e) {
+            stale = true;
+            SwingUtilities.invokeLater(() -> listener.saveFailed(e));
+            return;
+        }
+        stale = false;
+        savedSeq = seq;
+
+        if (appended) {
+            for (TaskPersistence peer : PEERS.getOrDefault(journalPath, Collections.emptySet())) {
+                if (peer != this) {
+                    peer.queue.add(WAKE);
+                }
+            }
+        }
+        if (rows != null) {
+            List<String> reloaded = rows;
+            SwingUtilities.invokeLater(() -> {
+                List<String> pending = new ArrayList<>();
+                for (Edit edit : unsaved) {
+                    if (edit.seq > seq) {
+                        pending.addAll(edit.records);
+                    }
+                }
+                listener.reloaded(reloaded, pending);
+            });
+        } else if (!remote.isEmpty()) {
+            SwingUtilities.invokeLater(() -> listener.remoteChanges(remote));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        Set<TaskPersistence> peers = PEERS.get(journalPath);
+        if (peers != null) {
+            peers.remove(this);
+        }
+        if (watcher != null) {
+            watcher.close();
+        }
+        if (worker.isAlive()) {
+            queue.add(STOP);
+            try {
+                worker.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static class Edit {
+        final long seq;
+        final List<String> records;
+        final List<String> undoLines;
+
+        Edit(long seq, List<String> records, List<String> undoLines) {
+            this.seq = seq;
+            this.records = records;
+            this.undoLines = undoLines;
+        }
+    }
+}
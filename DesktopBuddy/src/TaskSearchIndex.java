@@ -0,0 +1,275 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+public class TaskSearchIndex extends TaskIdIndex {
+
+    private static final int MAGIC = 0x54534931;
+
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+
+    public TaskSearchIndex(TaskListModel model) {
+        super(model);
+    }
+
+    @Override
+    protected void index(int id, String row) {
+        for (String token : tokenize(row)) {
+            terms.computeIfAbsent(token, k -> new Postings()).insert(id);
+        }
+    }
+
+    public int[] search(String query) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return new int[0];
+        }
+
+        int[] ids = null;
+        int count = 0;
+        for (int t = 0; t < tokens.size() - 1; t++) {
+            Postings p = terms.get(tokens.get(t));
+            if (p == null) {
+                return new int[0];
+            }
+            if (ids == null) {
+                ids = Arrays.copyOf(p.ids, p.size);
+                count = p.size;
+            } else {
+                count = intersect(ids, count, p);
+            }
+        }
+
+        String last = tokens.get(tokens.size() - 1);
+        Postings[] range = terms.subMap(last, last + Character.MAX_VALUE).values().toArray(new Postings[0]);
+        if (range.length == 0) {
+            return new int[0];
+        } else if (ids == null) {
+            Postings p = union(range);
+            ids = p.ids;
+            count = p.size;
+        } else if (range.length == 1) {
+            count = intersect(ids, count, range[0]);
+        } else {
+            count = filter(ids, count, range);
+        }
+
+        return rowsOf(ids, count);
+    }
+
+    private static int filter(int[] ids, int count, Postings[] range) {
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            for (Postings p : range) {
+                if (Arrays.binarySearch(p.ids, 0, p.size, ids[i]) >= 0) {
+                    ids[n++] = ids[i];
+                    break;
+                }
+            }
+        }
+        return n;
+    }
+
+    private Postings union(Postings[] range) {
+        if (range.length == 1) {
+            return range[0];
+        }
+        BitSet union = new BitSet(nextId);
+        for (Postings p : range) {
+            for (int i = 0; i < p.size; i++) {
+                union.set(p.ids[i]);
+            }
+        }
+        Postings merged = new Postings();
+        merged.ids = union.stream().toArray();
+        merged.size = merged.ids.length;
+        return merged;
+    }
+
+    private static int intersect(int[] ids, int count, Postings p) {
+        int n = 0, j = 0;
+        for (int i = 0; i < count && j < p.size; ) {
+            if (ids[i] == p.ids[j]) {
+                ids[n++] = ids[i++];
+                j++;
+            } else if (ids[i] < p.ids[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return n;
+    }
+
+    @Override
+    protected void unindex(int id, String row) {
+        if (row == null) {
+            for (Postings p : terms.values()) {
+                p.delete(id);
+            }
+            terms.values().removeIf(p -> p.size == 0);
+            return;
+        }
+        for (String token : tokenize(row)) {
+            Postings p = terms.get(token);
+            if (p != null && p.delete(id) && p.size == 0) {
+                terms.remove(token);
+            }
+        }
+    }
+
+    @Override
+    protected void dropDead() {
+        Iterator<Postings> it = terms.values().iterator();
+        while (it.hasNext()) {
+            Postings p = it.next();
+            int n = 0;
+            for (int i = 0; i < p.size; i++) {
+                if (!dead.get(p.ids[i])) {
+                    p.ids[n++] = p.ids[i];
+                }
+            }
+            p.size = n;
+            if (n == 0) {
+                it.remove();
+            }
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean word = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    public void save(File file, long[] fingerprint) throws IOException {
+        purge();
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(fingerprint.length);
+            for (long f : fingerprint) {
+                out.writeLong(f);
+            }
+            out.writeInt(nextId);
+            writeInts(out, order, size);
+            out.writeInt(terms.size());
+            for (Map.Entry<String, Postings> e : terms.entrySet()) {
+                byte[] term = e.getKey().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(term.length);
+                out.write(term);
+                writeInts(out, e.getValue().ids, e.getValue().size);
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values, int count) throws IOException {
+        out.writeInt(count);
+        ByteBuffer buf = ByteBuffer.allocate(count * Integer.BYTES);
+        buf.asIntBuffer().put(values, 0, count);
+        out.write(buf.array());
+    }
+
+    private static int[] readInts(ByteBuffer buf, int count, int minCapacity) {
+        int[] values = new int[Math.max(minCapacity, count)];
+        buf.asIntBuffer().get(values, 0, count);
+        buf.position(buf.position() + count * Integer.BYTES);
+        return values;
+    }
+
+    public static boolean isCurrent(File file, long[] fingerprint) {
+        if (!file.exists()) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                return false;
+            }
+            long[] saved = new long[in.readInt()];
+            for (int i = 0; i < saved.length; i++) {
+                saved[i] = in.readLong();
+            }
+            return Arrays.equals(saved, fingerprint);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public static TaskSearchIndex load(File file, TaskListModel model) {
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+            if (buf.getInt() != MAGIC) {
+                return null;
+            }
+            int fingerprint = buf.getInt();
+            buf.position(buf.position() + fingerprint * Long.BYTES);
+
+            TaskSearchIndex index = new TaskSearchIndex(model);
+            index.nextId = buf.getInt();
+            index.size = buf.getInt();
+            index.order = readInts(buf, index.size, 16);
+            int count = buf.getInt();
+            for (int t = 0; t < count; t++) {
+                byte[] term = new byte[buf.getInt()];
+                buf.get(term);
+                Postings p = new Postings();
+                p.size = buf.getInt();
+                p.ids = readInts(buf, p.size, 4);
+                index.terms.put(new String(term, StandardCharsets.UTF_8), p);
+            }
+            return index;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    static class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        void append(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        void insert(int id) {
+            if (size == 0 || ids[size - 1] < id) {
+                append(id);
+                return;
+            }
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0) {
+                return;
+            }
+            at = -at - 1;
+            append(0);
+            System.arraycopy(ids, at, ids, at + 1, size - 1 - at);
+            ids[at] = id;
+        }
+
+        boolean delete(int id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+            size--;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,365 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+public class TaskTransfer {
+
+    public static final int BATCH = 8192;
+
+    public enum Format {
+        CSV, JSON_LINES;
+
+        public static Format of(File file) {
+            String name = file.getName().toLowerCase(Locale.ROOT);
+            return name.endsWith(".jsonl") || name.endsWith(".ndjson") || name.endsWith(".json") ? JSON_LINES : CSV;
+        }
+    }
+
+    public static long importRows(File file, Format format, Consumer<List<String>> batches,
+                                  LongConsumer progress, BooleanSupplier cancelled) throws IOException {
+        long total = 0;
+        try (CountingInputStream counter = new CountingInputStream(new FileInputStream(file));
+             Reader in = new BufferedReader(new InputStreamReader(counter, StandardCharsets.UTF_8), 1 << 16)) {
+            RecordReader reader = format == Format.CSV ? new CsvReader(in) : new JsonLinesReader(in);
+            List<String> batch = new ArrayList<>(BATCH);
+            String row;
+            while ((row = reader.next()) != null) {
+                batch.add(row);
+                if (batch.size() == BATCH) {
+                    if (cancelled.getAsBoolean()) {
+                        return total;
+                    }
+                    batches.accept(batch);
+                    total += batch.size();
+                    progress.accept(counter.getCount());
+                    batch = new ArrayList<>(BATCH);
+                }
+            }
+            if (!batch.isEmpty() && !cancelled.getAsBoolean()) {
+                batches.accept(batch);
+                total += batch.size();
+            }
+            progress.accept(counter.getCount());
+        }
+        return total;
+    }
+
+    public static Writer openExport(File file, Format format) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 16);
+        if (format == Format.CSV) {
+            out.write("done,task\n");
+        }
+        return out;
+    }
+
+    public static void writeRow(Writer out, Format format, String row) throws IOException {
+        boolean done = row.startsWith(Task.DONE);
+        String text = done || row.startsWith(Task.OPEN) ? row.substring(2) : row;
+        if (format == Format.CSV) {
+            out.write(done ? "true," : "false,");
+            writeCsvField(out, text);
+        } else {
+            out.write("{\"task\":");
+            writeJsonString(out, text);
+            out.write(done ? ",\"done\":true}" : ",\"done\":false}");
+        }
+        out.write('\n');
+    }
+
+    private static String row(String text, boolean done) {
+        return (done ? Task.DONE : Task.OPEN) + text.replace('\n', ' ').replace('\r', ' ');
+    }
+
+    private static boolean isTrue(String value) {
+        String v = value.trim().toLowerCase(Locale.ROOT);
+        return v.equals("true") || v.equals("yes") || v.equals("1") || v.equals("x") || v.equals("done") || v.equals("✓");
+    }
+
+    private static void writeCsvField(Writer out, String s) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < s.length() && !quote; i++) {
+            char c = s.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(s);
+            return;
+        }
+        out.write('"');
+        out.write(s.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    private static void writeJsonString(Writer out, String s) throws IOException {
+        out.write('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': out.write("\\\""); break;
+                case '\\': out.write("\\\\"); break;
+                case '\n': out.write("\\n"); break;
+                case '\r': out.write("\\r"); break;
+                case '\t': out.write("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+
+    private interface RecordReader {
+        String next() throws IOException;
+    }
+
+    private static class CsvReader implements RecordReader {
+
+        private final Reader in;
+        private final List<String> fields = new ArrayList<>();
+        private final StringBuilder field = new StringBuilder();
+        private int taskColumn = -1;
+        private int doneColumn = -1;
+        private boolean headerChecked;
+        private int peeked = -2;
+
+        CsvReader(Reader in) {
+            this.in = in;
+        }
+
+        public String next() throws IOException {
+            while (readRecord()) {
+                if (!headerChecked) {
+                    headerChecked = true;
+                    if (header()) {
+                        continue;
+                    }
+                }
+                int task = taskColumn >= 0 ? taskColumn : fields.size() > 1 ? 1 : 0;
+                int done = taskColumn >= 0 ? doneColumn : fields.size() > 1 ? 0 : -1;
+                if (task >= fields.size() || fields.get(task).trim().isEmpty()) {
+                    continue;
+                }
+                return row(fields.get(task).trim(), done >= 0 && done < fields.size() && isTrue(fields.get(done)));
+            }
+            return null;
+        }
+
+        private boolean header() {
+            for (int i = 0; i < fields.size(); i++) {
+                String name = fields.get(i).trim().toLowerCase(Locale.ROOT);
+                if (name.equals("task") || name.equals("text") || name.equals("title")) {
+                    taskColumn = i;
+                } else if (name.equals("done") || name.equals("completed") || name.equals("status")) {
+                    doneColumn = i;
+                }
+            }
+            if (taskColumn < 0) {
+                doneColumn = -1;
+            }
+            return taskColumn >= 0;
+        }
+
+        private int read() throws IOException {
+            if (peeked != -2) {
+                int c = peeked;
+                peeked = -2;
+                return c;
+            }
+            return in.read();
+        }
+
+        private boolean readRecord() throws IOException {
+            fields.clear();
+            field.setLength(0);
+            int c = read();
+            if (c < 0) {
+                return false;
+            }
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c < 0) {
+                        break;
+                    } else if (c == '"') {
+                        int next = read();
+                        if (next == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            c = next;
+                            continue;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c < 0 || c == '\n') {
+                    break;
+                } else if (c == '\r') {
+                    int next = read();
+                    if (next != '\n') {
+                        peeked = next;
+                    }
+                    break;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+            fields.add(field.toString());
+            return true;
+        }
+    }
+
+    private static class JsonLinesReader implements RecordReader {
+
+        private final BufferedReader in;
+        private final StringBuilder sb = new StringBuilder();
+        private String line;
+        private int pos;
+
+        JsonLinesReader(Reader in) {
+            this.in = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+        }
+
+        public String next() throws IOException {
+            while ((line = in.readLine()) != null) {
+                pos = 0;
+                skipSpace();
+                if (pos >= line.length()) {
+                    continue;
+                }
+                String text = null;
+                boolean done = false;
+                expect('{');
+                skipSpace();
+                if (peek() == '}') {
+                    continue;
+                }
+                while (true) {
+                    skipSpace();
+                    String key = string();
+                    skipSpace();
+                    expect(':');
+                    skipSpace();
+                    Object value = value();
+                    if (key.equals("task") || key.equals("text") || key.equals("title")) {
+                        text = value instanceof String ? (String) value : null;
+                    } else if (key.equals("done") || key.equals("completed")) {
+                        done = value instanceof Boolean ? (Boolean) value : value instanceof String && isTrue((String) value);
+                    }
+                    skipSpace();
+                    if (peek() == ',') {
+                        pos++;
+                    } else {
+                        expect('}');
+                        break;
+                    }
+                }
+                if (text != null && !text.trim().isEmpty()) {
+                    return row(text.trim(), done);
+                }
+            }
+            return null;
+        }
+
+        private char peek() throws IOException {
+            if (pos >= line.length()) {
+                throw new IOException("Unexpected end of JSON line: " + line);
+            }
+            return line.charAt(pos);
+        }
+
+        private void expect(char c) throws IOException {
+            if (peek() != c) {
+                throw new IOException("Expected '" + c + "' in JSON line: " + line);
+            }
+            pos++;
+        }
+
+        private void skipSpace() {
+            while (pos < line.length() && Character.isWhitespace(line.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private Object value() throws IOException {
+            char c = peek();
+            if (c == '"') {
+                return string();
+            }
+            if (c == '{' || c == '[') {
+                skipNested();
+                return null;
+            }
+            int start = pos;
+            while (pos < line.length() && ",}] \t".indexOf(line.charAt(pos)) < 0) {
+                pos++;
+            }
+            String word = line.substring(start, pos);
+            return word.equals("true") ? Boolean.TRUE : word.equals("false") ? Boolean.FALSE : word;
+        }
+
+        private void skipNested() throws IOException {
+            int depth = 0;
+            do {
+                char c = peek();
+                if (c == '"') {
+                    string();
+                    continue;
+                }
+                if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                }
+                pos++;
+            } while (depth > 0);
+        }
+
+        private String string() throws IOException {
+            expect('"');
+            sb.setLength(0);
+            while (true) {
+                char c = peek();
+                pos++;
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                char e = peek();
+                pos++;
+                switch (e) {
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'u':
+                        if (pos + 4 > line.length()) {
+                            throw new IOException("Bad escape in JSON line: " + line);
+                        }
+                        sb.append((char) Integer.parseInt(line.substring(pos, pos + 4), 16));
+                        pos += 4;
+                        break;
+                    default: sb.append(e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+public class TimedEvent {
+
+    public static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final long start;
+    private final long end;
+    private final String text;
+    long seq;
+
+    public TimedEvent(long start, long end, String text) {
+        if (end <= start) {
+            throw new IllegalArgumentException("End must be after start");
+        }
+        this.start = start;
+        this.end = end;
+        this.text = text;
+    }
+
+    public static long minuteOf(LocalDateTime time) {
+        return time.toLocalDate().toEpochDay() * MINUTES_PER_DAY + time.toLocalTime().toSecondOfDay() / 60;
+    }
+
+    public static LocalDateTime timeOf(long minute) {
+        return LocalDateTime.of(LocalDate.ofEpochDay(Math.floorDiv(minute, MINUTES_PER_DAY)),
+                LocalTime.ofSecondOfDay(Math.floorMod(minute, MINUTES_PER_DAY) * 60L));
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    public long getStartDay() {
+        return Math.floorDiv(start, MINUTES_PER_DAY);
+    }
+
+    public long getEndDay() {
+        return Math.floorDiv(end - 1, MINUTES_PER_DAY);
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    @Override
+    public String toString() {
+        return timeOf(start).toLocalTime() + "–" + timeOf(end).toLocalTime() + " " + text;
+    }
+}
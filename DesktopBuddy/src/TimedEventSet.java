@@ -0,0 +1,146 @@
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+public class TimedEventSet {
+
+    public interface DayConsumer {
+        void accept(long day);
+    }
+
+    private static final String ADD = "+\t";
+    private static final String REMOVE = "-\t";
+
+    private final RecordLog log;
+    private final EventStore store;
+    private IntervalTree tree = new IntervalTree();
+
+    public TimedEventSet(File file, EventStore store) throws IOException {
+        this.log = new RecordLog(file);
+        this.store = store;
+        refresh();
+    }
+
+    public boolean refresh() throws IOException {
+        store.lock();
+        try {
+            synchronized (this) {
+                return log.catchUp(() -> tree = new IntervalTree(), this::apply);
+            }
+        } finally {
+            store.unlock();
+        }
+    }
+
+    public void add(TimedEvent event) throws IOException {
+        addAll(Collections.singletonList(event));
+    }
+
+    public void addAll(Collection<TimedEvent> events) throws IOException {
+        if (events.isEmpty()) {
+            return;
+        }
+        List<String> lines = new ArrayList<>(events.size());
+        for (TimedEvent event : events) {
+            lines.add(ADD + format(event));
+        }
+        write(lines);
+    }
+
+    public void remove(TimedEvent event) throws IOException {
+        write(Collections.singletonList(REMOVE + format(event)));
+    }
+
+    public synchronized int size() {
+        return tree.size();
+    }
+
+    public synchronized void overlapping(long from, long to, IntervalTree.EventConsumer out) {
+        tree.overlapping(from, to, out);
+    }
+
+    public synchronized void forEach(IntervalTree.EventConsumer out) {
+        tree.forEach(out);
+    }
+
+    public synchronized long firstFree(long from, long to, long length) {
+        return tree.firstFree(from, to, length);
+    }
+
+    public synchronized void conflicts(long fromDay, long toDay, DayConsumer out) {
+        long[] busyUntil = {Long.MIN_VALUE};
+        long[] marked = {Long.MIN_VALUE};
+        long from = fromDay * TimedEvent.MINUTES_PER_DAY;
+        long to = (toDay + 1) * TimedEvent.MINUTES_PER_DAY;
+        tree.overlapping(from, to, event -> {
+            if (event.getStart() < busyUntil[0]) {
+                long first = Math.max(Math.max(event.getStartDay(), fromDay), marked[0] + 1);
+                long last = Math.min(Math.floorDiv(Math.min(event.getEnd(), busyUntil[0]) - 1, TimedEvent.MINUTES_PER_DAY), toDay);
+                for (long day = first; day <= last; day++) {
+                    out.accept(day);
+                }
+                marked[0] = Math.max(marked[0], last);
+            }
+            busyUntil[0] = Math.max(busyUntil[0], event.getEnd());
+        });
+    }
+
+    private void write(List<String> lines) throws IOException {
+        store.lock();
+        try {
+            synchronized (this) {
+                log.catchUp(() -> tree = new IntervalTree(), this::apply);
+                log.append(lines);
+                for (String line : lines) {
+                    apply(line);
+                }
+                if (log.needsCompaction(tree.size())) {
+                    List<String> live = new ArrayList<>(tree.size());
+                    tree.forEach(event -> live.add(ADD + format(event)));
+                    log.compact(live);
+                }
+            }
+        } finally {
+            store.unlock();
+        }
+    }
+
+    private void apply(String line) {
+        TimedEvent event = line.length() > 2 ? parse(line.substring(2)) : null;
+        if (event == null) {
+            return;
+        }
+        if (line.startsWith(ADD)) {
+            tree.add(event);
+        } else if (line.startsWith(REMOVE)) {
+            TimedEvent[] found = new TimedEvent[1];
+            tree.overlapping(event.getStart(), event.getEnd(), e -> {
+                if (found[0] == null && e.getStart() == event.getStart() && e.getEnd() == event.getEnd()
+                        && e.getText().equals(event.getText())) {
+                    found[0] = e;
+                }
+            });
+            if (found[0] != null) {
+                tree.remove(found[0]);
+            }
+        }
+    }
+
+    private static String format(TimedEvent event) {
+        return event.getStart() + "\t" + event.getEnd() + "\t" + LineEscape.escape(event.getText());
+    }
+
+    private static TimedEvent parse(String line) {
+        String[] parts = line.split("\t", 3);
+        if (parts.length < 3) {
+            return null;
+        }
+        try {
+            return new TimedEvent(Long.parseLong(parts[0]), Long.parseLong(parts[1]), LineEscape.unescape(parts[2]));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
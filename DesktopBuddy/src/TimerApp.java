@@ -2,7 +2,18 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
 
 public class TimerApp extends JFrame {
 
@@ -10,11 +21,30 @@ public class TimerApp extends JFrame {
     private JLabel quoteLabel = new JLabel("", SwingConstants.CENTER);
     private JLabel statsLabel = new JLabel("Cycles Completed : 0", SwingConstants.CENTER);
 
-    private javax.swing.Timer timer;
-    private int timeLeft = 25 * 60;
+    private static final long WORK_NANOS = TimeUnit.MINUTES.toNanos(25);
+    private static final long SHORT_BREAK_NANOS = TimeUnit.MINUTES.toNanos(5);
+    private static final long LONG_BREAK_NANOS = TimeUnit.MINUTES.toNanos(15);
+    private static final int LONG_BREAK_EVERY = 4;
+    private static final long SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final TimerWheel wheel = TimerWheel.shared();
+    private TimerWheel.Timeout tickTimeout;
+    private TimerWheel.Timeout refreshTimeout;
+    private final javax.swing.Timer frameTimer = new javax.swing.Timer(16, e -> animate());
+    private final DefaultListModel<TimerWheel.Timeout> namedTimers = new DefaultListModel<>();
+    private final JList<TimerWheel.Timeout> timerList = new JList<>(namedTimers);
+    private final ToastNotifier notifier = ToastNotifier.shared();
+    private long phaseNanos = WORK_NANOS;
+    private long remainingNanos = WORK_NANOS;
+    private boolean onBreak = false;
+    private int workCycles = 0;
+    private long deadline;
     private boolean isRunning = false;
+    private boolean idle = false;
     private boolean darkMode = true;
-    private int sessionsCompleted = 0;
+    private SessionLog sessionLog;
+    private long sessionStart;
+    private JDialog statsDialog;
 
     private CircularTimer timerCircle = new CircularTimer();
 
@@ -33,7 +63,7 @@ public class TimerApp extends JFrame {
     public TimerApp() {
         super("Timer App");
         setDefaultCloseOperation(DISPOSE_ON_CLOSE);
-        setSize(520, 680);
+        setSize(520, 820);
         setLocationRelativeTo(null);
         setLayout(new BorderLayout(10, 10));
 
@@ -78,19 +108,84 @@ public class TimerApp extends JFrame {
         JButton start = makeButton("Start");
         JButton pause = makeButton("Pause");
         JButton reset = makeButton("Reset");
+        JButton stats = makeButton("Stats");
 
         start.addActionListener(e -> startTimer());
         pause.addActionListener(e -> pauseTimer());
         reset.addActionListener(e -> resetTimer());
+        stats.addActionListener(e -> showStats());
 
         controls.add(start);
         controls.add(pause);
         controls.add(reset);
+        controls.add(stats);
 
         timerPanel.add(controls, BorderLayout.SOUTH);
 
         add(timerPanel, BorderLayout.CENTER);
 
+        JPanel timersPanel = new JPanel(new BorderLayout(5, 5));
+        timersPanel.setOpaque(false);
+        timersPanel.setBorder(BorderFactory.createEmptyBorder(0, 10, 10, 10));
+        timerList.setFont(new Font("Consolas", Font.PLAIN, 16));
+        timerList.setVisibleRowCount(5);
+        timerList.setCellRenderer(new DefaultListCellRenderer() {
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean selected, boolean focus) {
+                TimerWheel.Timeout t = (TimerWheel.Timeout) value;
+                return super.getListCellRendererComponent(list, formatTime(t.remainingNanos()) + "  " + t.getName(), index, selected, focus);
+            }
+        });
+        JPanel timerButtons = new JPanel(new FlowLayout(FlowLayout.CENTER, 15, 5));
+        timerButtons.setOpaque(false);
+        JButton addTimer = makeButton("Add Timer");
+        JButton cancelTimer = makeButton("Cancel Timer");
+        addTimer.addActionListener(e -> addNamedTimer());
+        cancelTimer.addActionListener(e -> cancelNamedTimer());
+        timerButtons.add(addTimer);
+        timerButtons.add(cancelTimer);
+        timersPanel.add(new JScrollPane(timerList), BorderLayout.CENTER);
+        timersPanel.add(timerButtons, BorderLayout.SOUTH);
+        add(timersPanel, BorderLayout.SOUTH);
+
+        addWindowListener(new WindowAdapter() {
+            public void windowIconified(WindowEvent e) {
+                enterIdle();
+            }
+
+            public void windowDeiconified(WindowEvent e) {
+                leaveIdle();
+            }
+
+            public void windowDeactivated(WindowEvent e) {
+                Window opposite = e.getOppositeWindow();
+                if (opposite == null || opposite.getOwner() != TimerApp.this) {
+                    enterIdle();
+                }
+            }
+
+            public void windowActivated(WindowEvent e) {
+                leaveIdle();
+            }
+
+            public void windowClosed(WindowEvent e) {
+                resetTimer();
+                for (int i = 0; i < namedTimers.size(); i++) {
+                    wheel.cancel(namedTimers.get(i));
+                }
+                namedTimers.clear();
+                if (refreshTimeout != null) {
+                    wheel.cancel(refreshTimeout);
+                }
+            }
+        });
+
+        try {
+            sessionLog = SessionLog.shared();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        updateStats();
+
         randomQuote();
         applyTheme();
         setVisible(true);
@@ -102,49 +197,300 @@ public class TimerApp extends JFrame {
         }
 
         isRunning = true;
-        timer = new javax.swing.Timer(1000, e -> {
-            if (timeLeft > 0) {
-                timeLeft--;
+        if (!onBreak && sessionStart == 0) {
+            sessionStart = System.currentTimeMillis();
+        }
+        deadline = System.nanoTime() + remainingNanos;
+        scheduleUpdates();
+    }
+
+    private void scheduleUpdates() {
+        scheduleTick(deadline - System.nanoTime());
+        if (!idle) {
+            frameTimer.setDelay(frameDelay());
+            frameTimer.start();
+        }
+    }
+
+    private void enterIdle() {
+        if (idle) {
+            return;
+        }
+        idle = true;
+        if (isRunning) {
+            cancelTick();
+            scheduleTick(deadline - System.nanoTime());
+        }
+    }
+
+    private void leaveIdle() {
+        if (!idle) {
+            return;
+        }
+        idle = false;
+        if (isRunning) {
+            cancelTick();
+            updateTimerLabel();
+            scheduleUpdates();
+        }
+        if (!namedTimers.isEmpty()) {
+            timerList.repaint();
+            scheduleRefresh();
+        }
+    }
+
+    private void animate() {
+        if (isRunning) {
+            timerCircle.setProgress(1.0 - (double) remainingNanos() / phaseNanos);
+        }
+    }
+
+    private int frameDelay() {
+        int refreshRate = DisplayMode.REFRESH_RATE_UNKNOWN;
+        double scale = 1;
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        if (gc != null && !GraphicsEnvironment.isHeadless()) {
+            refreshRate = gc.getDevice().getDisplayMode().getRefreshRate();
+            scale = gc.getDefaultTransform().getScaleX();
+        }
+        long frameMillis = 1000 / (refreshRate > 0 ? refreshRate : 60);
+        double quarterPixels = 4 * Math.PI * timerCircle.getDiameter() * scale;
+        long visibleStepMillis = TimeUnit.NANOSECONDS.toMillis((long) (phaseNanos / Math.max(1, quarterPixels)));
+        return (int) Math.max(frameMillis, Math.min(visibleStepMillis, 1000));
+    }
+
+    private void tick() {
+        if (!isRunning) {
+            return;
+        }
+        long left = deadline - System.nanoTime();
+        if (left > 0) {
+            if (!idle) {
                 updateTimerLabel();
-            } else {
-                timer.stop();
-                isRunning = false;
-                sessionsCompleted++;
-                statsLabel.setText("Cycles Completed : " + sessionsCompleted);
-                JOptionPane.showMessageDialog(this, "Time is up! Great job!");
-                resetTimer();
-                randomQuote();
+            }
+            scheduleTick(left);
+            return;
+        }
+        isRunning = false;
+        remainingNanos = 0;
+        updateTimerLabel();
+        if (onBreak) {
+            notifier.notify("Break over", "Next focus session started");
+            startPhase(false, WORK_NANOS);
+        } else {
+            recordSession(true, phaseNanos);
+            workCycles++;
+            boolean longBreak = workCycles % LONG_BREAK_EVERY == 0;
+            notifier.notify("Session complete", "Great job! " + (longBreak ? "Long" : "Short") + " break started");
+            startPhase(true, longBreak ? LONG_BREAK_NANOS : SHORT_BREAK_NANOS);
+        }
+    }
+
+    private void startPhase(boolean breakPhase, long nanos) {
+        cancelTick();
+        isRunning = false;
+        onBreak = breakPhase;
+        phaseNanos = nanos;
+        remainingNanos = nanos;
+        if (breakPhase) {
+            quoteLabel.setText("Break time. Step away for a few minutes.");
+        } else {
+            randomQuote();
+        }
+        updateTimerLabel();
+        startTimer();
+    }
+
+    private void scheduleTick(long left) {
+        long untilNextSecond = left % SECOND_NANOS == 0 ? SECOND_NANOS : left % SECOND_NANOS;
+        long at = idle ? deadline : deadline - left + untilNextSecond;
+        TimerWheel.Timeout[] scheduled = new TimerWheel.Timeout[1];
+        scheduled[0] = wheel.schedule("Focus session", at, () -> {
+            if (tickTimeout == scheduled[0]) {
+                tick();
             }
         });
+        tickTimeout = scheduled[0];
+    }
+
+    private void cancelTick() {
+        frameTimer.stop();
+        if (tickTimeout != null) {
+            wheel.cancel(tickTimeout);
+            tickTimeout = null;
+        }
+    }
+
+    private void addNamedTimer() {
+        String name = JOptionPane.showInputDialog(this, "Timer name:", "Timer " + (namedTimers.size() + 1));
+        if (name == null || name.trim().isEmpty()) {
+            return;
+        }
+        String minutes = JOptionPane.showInputDialog(this, "Minutes:", "5");
+        long nanos;
+        try {
+            nanos = (long) (Double.parseDouble(minutes.trim()) * TimeUnit.MINUTES.toNanos(1));
+        } catch (NullPointerException | NumberFormatException e) {
+            return;
+        }
+        if (nanos <= 0) {
+            return;
+        }
+        TimerWheel.Timeout[] added = new TimerWheel.Timeout[1];
+        added[0] = wheel.schedule(name.trim(), System.nanoTime() + nanos, () -> namedTimerExpired(added[0]));
+        int at = 0;
+        while (at < namedTimers.size() && namedTimers.get(at).getDeadline() <= added[0].getDeadline()) {
+            at++;
+        }
+        namedTimers.add(at, added[0]);
+        scheduleRefresh();
+    }
 
-        timer.start();
+    private void cancelNamedTimer() {
+        for (TimerWheel.Timeout t : timerList.getSelectedValuesList()) {
+            wheel.cancel(t);
+            namedTimers.removeElement(t);
+        }
+    }
+
+    private void namedTimerExpired(TimerWheel.Timeout t) {
+        if (namedTimers.removeElement(t)) {
+            notifier.notify("Timers finished", t.getName());
+        }
+    }
+
+    private void scheduleRefresh() {
+        if (refreshTimeout == null || refreshTimeout.isDone()) {
+            refreshTimeout = wheel.schedule("Timer list", System.nanoTime() + SECOND_NANOS, this::refreshTimers);
+        }
+    }
+
+    private void refreshTimers() {
+        if (namedTimers.isEmpty() || idle || !isDisplayable()) {
+            return;
+        }
+        timerList.repaint();
+        scheduleRefresh();
+    }
+
+    private static String formatTime(long nanos) {
+        long totalSeconds = (nanos + SECOND_NANOS - 1) / SECOND_NANOS;
+        return String.format("%02d:%02d", totalSeconds / 60, totalSeconds % 60);
+    }
+
+    private long remainingNanos() {
+        return isRunning ? Math.max(0, deadline - System.nanoTime()) : remainingNanos;
     }
 
     private void pauseTimer() {
-        if (timer != null) {
-            timer.stop();
+        if (!isRunning) {
+            return;
         }
+        remainingNanos = remainingNanos();
         isRunning = false;
+        cancelTick();
+        updateTimerLabel();
     }
 
     private void resetTimer() {
-        if (timer != null) {
-            timer.stop();
-        }
+        recordSession(false, phaseNanos - remainingNanos());
+        cancelTick();
         isRunning = false;
-        timeLeft = 25 * 60;
+        onBreak = false;
+        phaseNanos = WORK_NANOS;
+        remainingNanos = WORK_NANOS;
         updateTimerLabel();
-        timerCircle.setProgress(0);
-        timerCircle.repaint();
     }
 
-    private void updateTimerLabel() {
-        int minutes = timeLeft / 60;
-        int seconds = timeLeft % 60;
-        timerLabel.setText(String.format("%02d:%02d", minutes, seconds));
+    private void recordSession(boolean completed, long focusedNanos) {
+        if (sessionStart == 0) {
+            return;
+        }
+        long start = sessionStart;
+        sessionStart = 0;
+        long seconds = TimeUnit.NANOSECONDS.toSeconds(focusedNanos);
+        if (sessionLog == null || (!completed && seconds == 0)) {
+            return;
+        }
+        try {
+            sessionLog.append(start, seconds, completed);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        updateStats();
+    }
+
+    private void updateStats() {
+        if (sessionLog == null) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        statsLabel.setText("Cycles Completed : " + sessionLog.getDay(today).getCompleted()
+                + "  ·  Streak : " + sessionLog.getCurrentStreak(today));
+        if (statsDialog != null && statsDialog.isShowing()) {
+            showStats();
+        }
+    }
+
+    private void showStats() {
+        if (sessionLog == null) {
+            JOptionPane.showMessageDialog(this, "Session history is not available.");
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        JPanel summary = new JPanel(new GridLayout(0, 2, 10, 4));
+        summary.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        addStat(summary, "Today", sessionLog.getDay(today));
+        addStat(summary, "This week", sessionLog.getWeek(today));
+        addStat(summary, "This month", sessionLog.getMonth(YearMonth.from(today)));
+        addStat(summary, "All time", sessionLog.getTotal());
+        summary.add(new JLabel("Aborted"));
+        summary.add(new JLabel(String.valueOf(sessionLog.getTotal().getAborted())));
+        summary.add(new JLabel("Current streak"));
+        summary.add(new JLabel(sessionLog.getCurrentStreak(today) + " days"));
+        summary.add(new JLabel("Longest streak"));
+        summary.add(new JLabel(sessionLog.getLongestStreak() + " days"));
+        summary.add(new JLabel("Active days"));
+        summary.add(new JLabel(String.valueOf(sessionLog.getActiveDays())));
+
+        DateTimeFormatter monthFormat = DateTimeFormatter.ofPattern("MMM yyyy");
+        List<Object[]> rows = new ArrayList<>();
+        for (Map.Entry<YearMonth, SessionLog.Stats> e : sessionLog.getMonths().descendingMap().entrySet()) {
+            SessionLog.Stats month = e.getValue();
+            rows.add(new Object[]{e.getKey().format(monthFormat), month.getCompleted(), month.getAborted(), formatFocus(month.getFocusSeconds())});
+        }
+        JTable table = new JTable(rows.toArray(new Object[0][]), new Object[]{"Month", "Completed", "Aborted", "Focus"});
+        table.setEnabled(false);
+
+        if (statsDialog == null) {
+            statsDialog = new JDialog(this, "Focus Stats", false);
+            statsDialog.setSize(420, 460);
+            statsDialog.setLocationRelativeTo(this);
+        }
+        statsDialog.getContentPane().removeAll();
+        statsDialog.add(summary, BorderLayout.NORTH);
+        statsDialog.add(new JScrollPane(table), BorderLayout.CENTER);
+        statsDialog.revalidate();
+        statsDialog.setVisible(true);
+    }
 
-        timerCircle.setProgress(1.0 - (timeLeft / (25.0 * 60)));
-        timerCircle.repaint();
+    private void addStat(JPanel panel, String label, SessionLog.Stats stats) {
+        panel.add(new JLabel(label));
+        panel.add(new JLabel(stats.getCompleted() + " sessions, " + formatFocus(stats.getFocusSeconds())));
+    }
+
+    private static String formatFocus(long seconds) {
+        return String.format("%dh %02dm", seconds / 3600, seconds / 60 % 60);
+    }
+
+    private void updateTimerLabel() {
+        long left = remainingNanos();
+        String text = formatTime(left);
+        if (!text.equals(timerLabel.getText())) {
+            timerLabel.setText(text);
+            timerCircle.repaintText();
+        }
+        timerCircle.setProgress(1.0 - (double) left / phaseNanos);
     }
 
     private void randomQuote() {
@@ -165,12 +511,16 @@ public class TimerApp extends JFrame {
         timerLabel.setForeground(fg);
         quoteLabel.setForeground(fg);
         statsLabel.setForeground(fg);
+        timerCircle.invalidateRing();
 
         repaint();
     }
 
     class RoundedPanel extends JPanel {
 
+        private final Color shadow = new Color(0, 0, 0, 25);
+        private final Color darkFill = new Color(50, 54, 61);
+
         RoundedPanel() {
             setOpaque(false);
         }
@@ -181,10 +531,10 @@ public class TimerApp extends JFrame {
 
             int w = getWidth(), h = getHeight(), arc = 25;
 
-            g2.setColor(new Color(0, 0, 0, 25));
+            g2.setColor(shadow);
             g2.fillRoundRect(4, 4, w - 8, h - 8, arc, arc);
 
-            g2.setColor(darkMode ? new Color(50, 54, 61) : Color.WHITE);
+            g2.setColor(darkMode ? darkFill : Color.WHITE);
             g2.fillRoundRect(0, 0, w - 8, h - 8, arc, arc);
 
             g2.dispose();
@@ -212,43 +562,146 @@ public class TimerApp extends JFrame {
 
     class CircularTimer extends JPanel {
 
+        private static final int STROKE = 12;
+        private static final int STEPS = 360;
+
+        private final BasicStroke stroke = new BasicStroke(STROKE, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+        private final Color track = new Color(180, 180, 180, 70);
+        private final Font font = new Font("Consolas", Font.BOLD, 36);
+        private final Path2D.Double arc = new Path2D.Double(Path2D.WIND_NON_ZERO, STEPS + 2);
+        private final double[] stepX = new double[STEPS + 1];
+        private final double[] stepY = new double[STEPS + 1];
+
         private double progress = 0.0;
+        private BufferedImage ring;
+        private int ringSize;
+        private boolean ringDark;
+        private FontMetrics metrics;
+        private String text;
+        private int textX;
+        private int textY;
 
         CircularTimer() {
             setPreferredSize(new Dimension(250, 250));
             setOpaque(false);
+            addPropertyChangeListener("graphicsConfiguration", e -> invalidateRing());
         }
 
-        void setProgress(double p) {
-            progress = Math.max(0, Math.min(1, p));
+        void invalidateRing() {
+            ring = null;
+            repaint();
         }
 
-        protected void paintComponent(Graphics g) {
-            Graphics2D g2 = (Graphics2D) g;
-            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        int getDiameter() {
+            return Math.max(0, Math.min(getWidth(), getHeight()) - 2 * STROKE);
+        }
 
-            int size = Math.min(getWidth(), getHeight());
-            int stroke = 12;
+        void setProgress(double p) {
+            p = Math.max(0, Math.min(1, p));
+            if (p == progress) {
+                return;
+            }
+            double from = progress;
+            progress = p;
+            if (ring == null) {
+                repaint();
+                return;
+            }
+            double r = getDiameter() / 2.0;
+            double c = STROKE + r;
+            double a1 = Math.toRadians(90 - Math.max(from, p) * 360);
+            double a2 = Math.toRadians(90 - Math.floor(Math.min(from, p) * STEPS) * 360 / STEPS);
+            double minX = Math.min(Math.cos(a1), Math.cos(a2));
+            double maxX = Math.max(Math.cos(a1), Math.cos(a2));
+            double minY = Math.min(Math.sin(a1), Math.sin(a2));
+            double maxY = Math.max(Math.sin(a1), Math.sin(a2));
+            for (int k = (int) Math.ceil(a1 / (Math.PI / 2)); k * (Math.PI / 2) <= a2; k++) {
+                switch (Math.floorMod(k, 4)) {
+                    case 0: maxX = 1; break;
+                    case 1: maxY = 1; break;
+                    case 2: minX = -1; break;
+                    default: minY = -1; break;
+                }
+            }
+            int pad = STROKE / 2 + 2;
+            int x = (int) Math.floor(c + minX * r) - pad;
+            int y = (int) Math.floor(c - maxY * r) - pad;
+            repaint(x, y, (int) Math.ceil(c + maxX * r) + pad - x, (int) Math.ceil(c - minY * r) + pad - y);
+        }
 
-            g2.setStroke(new BasicStroke(stroke, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+        void repaintText() {
+            if (ring == null) {
+                repaint();
+            } else {
+                repaint(STROKE, textY - metrics.getAscent(), getDiameter(), metrics.getHeight());
+            }
+        }
 
-            g2.setColor(new Color(180, 180, 180, 70));
-            g2.drawArc(stroke, stroke, size - 2 * stroke, size - 2 * stroke, 0, 360);
+        private void buildRing(Graphics2D g2, int size) {
+            AffineTransform tx = g2.getTransform();
+            double scale = Math.max(1, Math.max(tx.getScaleX(), tx.getScaleY()));
+            int pixels = (int) Math.ceil(size * scale);
+            ring = new BufferedImage(pixels, pixels, BufferedImage.TYPE_INT_ARGB_PRE);
+            Graphics2D rg = ring.createGraphics();
+            rg.scale(scale, scale);
+            rg.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            rg.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+            rg.setStroke(stroke);
+            rg.setColor(track);
+            rg.drawOval(STROKE, STROKE, size - 2 * STROKE, size - 2 * STROKE);
+            rg.dispose();
+            double r = (size - 2 * STROKE) / 2.0;
+            for (int i = 0; i <= STEPS; i++) {
+                double a = Math.toRadians(90 - i * 360.0 / STEPS);
+                stepX[i] = STROKE + r + r * Math.cos(a);
+                stepY[i] = STROKE + r - r * Math.sin(a);
+            }
+            ringSize = size;
+            ringDark = darkMode;
+            metrics = g2.getFontMetrics(font);
+            textY = (size + metrics.getAscent()) / 2 - 5;
+            text = null;
+        }
 
-            g2.setColor(accent);
-            g2.drawArc(stroke, stroke, size - 2 * stroke, size - 2 * stroke,
-                    90, (int) -(progress * 360));
+        protected void paintComponent(Graphics g) {
+            Graphics2D g2 = (Graphics2D) g;
+            int size = Math.min(getWidth(), getHeight());
+            if (size <= 2 * STROKE) {
+                return;
+            }
+            if (ring == null || ringSize != size || ringDark != darkMode) {
+                buildRing(g2, size);
+            }
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+            g2.drawImage(ring, 0, 0, size, size, null);
+
+            if (progress > 0) {
+                double sweep = progress * STEPS;
+                int whole = (int) sweep;
+                arc.reset();
+                arc.moveTo(stepX[0], stepY[0]);
+                for (int i = 1; i <= whole; i++) {
+                    arc.lineTo(stepX[i], stepY[i]);
+                }
+                if (sweep > whole) {
+                    double r = (size - 2 * STROKE) / 2.0;
+                    double a = Math.toRadians(90 - progress * 360);
+                    arc.lineTo(STROKE + r + r * Math.cos(a), STROKE + r - r * Math.sin(a));
+                }
+                g2.setStroke(stroke);
+                g2.setColor(accent);
+                g2.draw(arc);
+            }
 
-            g2.setFont(new Font("Consolas", Font.BOLD, 36));
+            String current = timerLabel.getText();
+            if (current != text) {
+                text = current;
+                textX = (size - metrics.stringWidth(text)) / 2;
+            }
+            g2.setFont(font);
             g2.setColor(darkMode ? Color.WHITE : Color.BLACK);
-
-            String text = timerLabel.getText();
-            FontMetrics fm = g2.getFontMetrics();
-
-            int x = (size - fm.stringWidth(text)) / 2;
-            int y = (size + fm.getAscent()) / 2 - 5;
-
-            g2.drawString(text, x, y);
+            g2.drawString(text, textX, textY);
         }
     }
 
@@ -0,0 +1,239 @@
+import javax.swing.SwingUtilities;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class TimerWheel {
+
+    public static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int LEVELS = 6;
+
+    private static TimerWheel shared;
+
+    public static final class Timeout {
+        private final String name;
+        private final long deadline;
+        private final Runnable action;
+        private long tick;
+        private int level;
+        private int slot;
+        private Timeout prev;
+        private Timeout next;
+        private volatile boolean done;
+
+        private Timeout(String name, long deadline, Runnable action) {
+            this.name = name;
+            this.deadline = deadline;
+            this.action = action;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+
+        public long remainingNanos() {
+            return Math.max(0, deadline - System.nanoTime());
+        }
+
+        public boolean isDone() {
+            return done;
+        }
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Timeout[][] slots = new Timeout[LEVELS][SLOTS];
+    private final long[] occupied = new long[LEVELS];
+    private final long origin = System.nanoTime();
+    private long currentTick;
+    private long wakeTick = Long.MAX_VALUE;
+    private int size;
+
+    public static synchronized TimerWheel shared() {
+        if (shared == null) {
+            shared = new TimerWheel();
+            Thread thread = new Thread(shared::run, "timer-wheel");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return shared;
+    }
+
+    public Timeout schedule(String name, long deadline, Runnable action) {
+        Timeout timeout = new Timeout(name, deadline, action);
+        lock.lock();
+        try {
+            timeout.tick = Math.max(currentTick + 1, -Math.floorDiv(origin - deadline, TICK_NANOS));
+            place(timeout);
+            size++;
+            if (timeout.tick < wakeTick) {
+                changed.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return timeout;
+    }
+
+    public boolean cancel(Timeout timeout) {
+        lock.lock();
+        try {
+            if (timeout.done) {
+                return false;
+            }
+            unlink(timeout);
+            timeout.done = true;
+            size--;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void place(Timeout timeout) {
+        long delta = timeout.tick - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (BITS * (level + 1))) {
+            level++;
+        }
+        int slot = (int) (timeout.tick >>> (BITS * level)) & (SLOTS - 1);
+        timeout.level = level;
+        timeout.slot = slot;
+        timeout.prev = null;
+        timeout.next = slots[level][slot];
+        if (timeout.next != null) {
+            timeout.next.prev = timeout;
+        }
+        slots[level][slot] = timeout;
+        occupied[level] |= 1L << slot;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            slots[timeout.level][timeout.slot] = timeout.next;
+            if (timeout.next == null) {
+                occupied[timeout.level] &= ~(1L << timeout.slot);
+            }
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+    }
+
+    private Timeout takeSlot(int level, int slot) {
+        Timeout head = slots[level][slot];
+        slots[level][slot] = null;
+        occupied[level] &= ~(1L << slot);
+        return head;
+    }
+
+    private long nextEventTick() {
+        long next = Long.MAX_VALUE;
+        for (int level = 0; level < LEVELS; level++) {
+            if (occupied[level] == 0) {
+                continue;
+            }
+            int shift = BITS * level;
+            long index = currentTick >>> shift;
+            int skip = Long.numberOfTrailingZeros(Long.rotateRight(occupied[level], (int) ((index + 1) & (SLOTS - 1)))) + 1;
+            next = Math.min(next, (index + skip) << shift);
+        }
+        return next;
+    }
+
+    private void advance(long tick, List<Timeout> expired) {
+        currentTick = tick;
+        for (int level = LEVELS - 1; level > 0; level--) {
+            int shift = BITS * level;
+            if ((tick & ((1L << shift) - 1)) == 0) {
+                Timeout t = takeSlot(level, (int) (tick >>> shift) & (SLOTS - 1));
+                while (t != null) {
+                    Timeout next = t.next;
+                    if (t.tick <= tick) {
+                        expire(t, expired);
+                    } else {
+                        place(t);
+                    }
+                    t = next;
+                }
+            }
+        }
+        Timeout t = takeSlot(0, (int) tick & (SLOTS - 1));
+        while (t != null) {
+            Timeout next = t.next;
+            if (t.tick <= tick) {
+                expire(t, expired);
+            } else {
+                place(t);
+            }
+            t = next;
+        }
+    }
+
+    private void expire(Timeout timeout, List<Timeout> expired) {
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.done = true;
+        size--;
+        expired.add(timeout);
+    }
+
+    private void run() {
+        List<Timeout> expired = new ArrayList<>();
+        lock.lock();
+        try {
+            while (true) {
+                long now = (System.nanoTime() - origin) / TICK_NANOS;
+                for (long next = nextEventTick(); next <= now; next = nextEventTick()) {
+                    advance(next, expired);
+                }
+                currentTick = Math.max(currentTick, now);
+                if (!expired.isEmpty()) {
+                    List<Timeout> batch = new ArrayList<>(expired);
+                    expired.clear();
+                    SwingUtilities.invokeLater(() -> {
+                        for (Timeout timeout : batch) {
+                            timeout.action.run();
+                        }
+                    });
+                }
+                wakeTick = nextEventTick();
+                if (wakeTick == Long.MAX_VALUE) {
+                    changed.await();
+                } else {
+                    long wait = origin + wakeTick * TICK_NANOS - System.nanoTime();
+                    if (wait > 0) {
+                        changed.awaitNanos(wait);
+                    }
+                }
+                wakeTick = Long.MAX_VALUE;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -1,15 +1,45 @@
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.event.ListDataEvent;
 import java.awt.*;
 import java.awt.event.*;
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public class ToDoListApp extends JFrame {
 
-    private DefaultListModel<String> model = new DefaultListModel<>();
-    private JList<String> taskList = new JList<>(model);
+    private static final long UNDO_BUDGET = Long.getLong("todo.undoBudget", UndoHistory.DEFAULT_BUDGET);
+
+    private TaskListModel model;
+    private JList<String> taskList;
     private JTextField taskInput = new JTextField("Write your today's goals");
+    private JLabel statusLabel = new JLabel(" ");
+    private JButton addBtn;
+    private JButton removeBtn;
+    private TaskPersistence store;
+    private File archiveFile;
+    private PagedTaskListModel archive;
+    private TaskSearchIndex searchIndex;
+    private TaskAttributeIndex attributeIndex;
+    private FilteredTaskListModel searchResults;
+    private JTextField searchInput = new JTextField();
+    private JTextField filterInput = new JTextField();
+    private JButton doneBtn;
+    private JButton importBtn;
+    private JButton exportBtn;
+    private SwingWorker<?, ?> transfer;
+    private File historyFile;
+    private UndoHistory history;
+    private ExecutorService historyWriter;
+    private List<JLabel> queryLabels = new ArrayList<>();
 
     private boolean darkMode = true;
 
@@ -18,12 +48,74 @@ public class ToDoListApp extends JFrame {
     private Color lightBg = new Color(245, 247, 250);
 
     public ToDoListApp() {
+        this(null);
+    }
+
+    public ToDoListApp(File archiveFile) {
         super("To-Do List");
+
+        if (archiveFile == null) {
+            model = new ArrayTaskListModel();
+            historyFile = new File("tasks.txt.undo");
+            store = new TaskPersistence(new File("tasks.txt"), new TaskPersistence.Listener() {
+                public void remoteChanges(List<String> records) {
+                    replay(records);
+                    runSearch();
+                }
+
+                public void reloaded(List<String> rows, List<String> unsaved) {
+                    reload(rows, unsaved);
+                }
+
+                public void saveFailed(IOException e) {
+                    statusLabel.setText("Could not save tasks: " + e.getMessage());
+                }
+            });
+            taskList = new JList<>(model);
+            searchResults = new FilteredTaskListModel(model);
+            model.addListDataListener(searchResults);
+            attributeIndex = new TaskAttributeIndex(model);
+            model.addListDataListener(attributeIndex);
+        } else {
+            this.archiveFile = archiveFile;
+            model = new ArrayTaskListModel();
+            historyFile = new File(archiveFile.getPath() + ".undo");
+            historyWriter = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "todo-history");
+                t.setDaemon(true);
+                return t;
+            });
+            taskList = new JList<>(model);
+            taskList.setPrototypeCellValue("• Write your today's goals");
+        }
+
         setDefaultCloseOperation(DISPOSE_ON_CLOSE);
         setSize(520, 600);
         setLocationRelativeTo(null);
         setLayout(new BorderLayout(15, 15));
 
+        JRootPane root = getRootPane();
+        int menu = InputEvent.CTRL_DOWN_MASK;
+        root.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_Z, menu), "undo");
+        root.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_Y, menu), "redo");
+        root.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_Z, menu | InputEvent.SHIFT_DOWN_MASK), "redo");
+        root.getActionMap().put("undo", new AbstractAction() {
+            public void actionPerformed(ActionEvent e) {
+                undo();
+            }
+        });
+        root.getActionMap().put("redo", new AbstractAction() {
+            public void actionPerformed(ActionEvent e) {
+                redo();
+            }
+        });
+
+        addWindowListener(new WindowAdapter() {
+            public void windowClosed(WindowEvent e) {
+                new Thread(() -> close(), "todo-close").start();
+            }
+        });
+
         GradientPanel header = new GradientPanel(accent, new Color(72, 118, 255));
         header.setLayout(new BorderLayout());
         header.setPreferredSize(new Dimension(520, 60));
@@ -38,8 +130,24 @@ public class ToDoListApp extends JFrame {
         themeToggle.setOpaque(false);
         themeToggle.addActionListener(e -> toggleTheme());
 
+        importBtn = makeButton("Import");
+        exportBtn = makeButton("Export");
+        for (JButton btn : new JButton[]{importBtn, exportBtn}) {
+            btn.setForeground(Color.WHITE);
+            btn.setOpaque(false);
+            btn.setEnabled(false);
+        }
+        importBtn.addActionListener(e -> importTasks());
+        exportBtn.addActionListener(e -> exportTasks());
+
+        JPanel headerButtons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 0, 10));
+        headerButtons.setOpaque(false);
+        headerButtons.add(importBtn);
+        headerButtons.add(exportBtn);
+        headerButtons.add(themeToggle);
+
         header.add(title, BorderLayout.WEST);
-        header.add(themeToggle, BorderLayout.EAST);
+        header.add(headerButtons, BorderLayout.EAST);
 
         add(header, BorderLayout.NORTH);
 
@@ -69,13 +177,19 @@ public class ToDoListApp extends JFrame {
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 5));
         buttonPanel.setOpaque(false);
 
-        JButton addBtn = makeButton("Add Task");
-        JButton removeBtn = makeButton("Remove Task");
+        addBtn = makeButton("Add Task");
+        removeBtn = makeButton("Remove Task");
+        doneBtn = makeButton("Done");
+        addBtn.setEnabled(false);
+        removeBtn.setEnabled(false);
+        doneBtn.setEnabled(false);
 
         addBtn.addActionListener(e -> addTask());
         removeBtn.addActionListener(e -> removeTask());
+        doneBtn.addActionListener(e -> toggleDone());
 
         buttonPanel.add(addBtn);
+        buttonPanel.add(doneBtn);
         buttonPanel.add(removeBtn);
 
         RoundedPanel inputPanel = new RoundedPanel();
@@ -91,7 +205,41 @@ public class ToDoListApp extends JFrame {
         JScrollPane scroll = new JScrollPane(taskList);
         scroll.setBorder(BorderFactory.createEmptyBorder());
 
-        mainPanel.add(scroll, BorderLayout.CENTER);
+        DocumentListener queryListener = new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) {
+                runSearch();
+            }
+
+            public void removeUpdate(DocumentEvent e) {
+                runSearch();
+            }
+
+            public void changedUpdate(DocumentEvent e) {
+                runSearch();
+            }
+        };
+        searchInput.setEnabled(false);
+        searchInput.getDocument().addDocumentListener(queryListener);
+        filterInput.setEnabled(false);
+        filterInput.setToolTipText("e.g. #work AND not done AND priority>=2");
+        filterInput.getDocument().addDocumentListener(queryListener);
+
+        JPanel searchPanel = new JPanel(new GridLayout(2, 1, 0, 5));
+        searchPanel.setOpaque(false);
+        searchPanel.add(makeQueryRow("Search", searchInput));
+        searchPanel.add(makeQueryRow("Filter", filterInput));
+        searchPanel.setVisible(store != null);
+
+        JPanel listPanel = new JPanel(new BorderLayout(0, 10));
+        listPanel.setOpaque(false);
+        listPanel.add(searchPanel, BorderLayout.NORTH);
+        listPanel.add(scroll, BorderLayout.CENTER);
+
+        mainPanel.add(listPanel, BorderLayout.CENTER);
+
+        statusLabel.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        statusLabel.setForeground(new Color(231, 76, 60));
+        mainPanel.add(statusLabel, BorderLayout.SOUTH);
 
         add(mainPanel, BorderLayout.CENTER);
 
@@ -104,44 +252,418 @@ public class ToDoListApp extends JFrame {
     private void addTask() {
         String task = taskInput.getText().trim();
         if (!task.isEmpty() && !task.equals("Write your today's goals")) {
-            model.addElement("• " + task);
+            String row = "• " + task;
+            model.add(row);
             taskInput.setText("");
             taskInput.setForeground(Color.GRAY);
-            saveTasks();
+            saveTask(model.size() - 1, row);
+            runSearch();
         }
     }
 
     private void removeTask() {
         int index = taskList.getSelectedIndex();
+        if (index != -1 && taskList.getModel() == searchResults) {
+            index = searchResults.baseIndex(index);
+        }
         if (index != -1) {
+            String row = model.get(index);
             model.remove(index);
-            saveTasks();
+            deleteTask(index, row);
+        }
+    }
+
+    private void saveTask(int index, String task) {
+        history.record(TaskJournal.addRecord(index, task));
+        if (store != null) {
+            store.added(index, task);
+        } else {
+            writeHistory();
+        }
+    }
+
+    private void deleteTask(int index, String task) {
+        history.record(TaskJournal.removeRecord(index, task));
+        if (store != null) {
+            store.removed(index, task);
+        } else {
+            writeHistory();
+        }
+    }
+
+    private void toggleDone() {
+        int index = taskList.getSelectedIndex();
+        if (index != -1 && taskList.getModel() == searchResults) {
+            index = searchResults.baseIndex(index);
+        }
+        if (index != -1) {
+            String old = model.get(index);
+            String row = Task.toggleDone(old);
+            model.set(index, row);
+            history.record(TaskJournal.setRecord(index, row, old));
+            if (store != null) {
+                store.changed(index, row, old);
+            } else {
+                writeHistory();
+            }
+            runSearch();
+        }
+    }
+
+    private void undo() {
+        if (addBtn.isEnabled()) {
+            applyEdit(history.undo());
+        }
+    }
+
+    private void redo() {
+        if (addBtn.isEnabled()) {
+            applyEdit(history.redo());
+        }
+    }
+
+    private void applyEdit(String record) {
+        if (record == null) {
+            return;
+        }
+        TaskJournal.apply(model, record);
+        if (store != null) {
+            store.edited(record);
+        } else {
+            writeHistory();
+        }
+        runSearch();
+    }
+
+    private void writeHistory() {
+        UndoHistory current = history;
+        List<String> lines = current.drain();
+        historyWriter.execute(() -> {
+            try {
+                current.write(lines);
+            } catch (IOException e) {
+                SwingUtilities.invokeLater(() -> statusLabel.setText("Could not save undo history: " + e.getMessage()));
+            }
+        });
+    }
+
+    private void runSearch() {
+        if (searchIndex == null) {
+            return;
+        }
+        String query = searchInput.getText().trim();
+        String filter = filterInput.getText().trim();
+        if (query.isEmpty() && filter.isEmpty()) {
+            taskList.setModel(model);
+            return;
+        }
+
+        int[] rows = query.isEmpty() ? null : searchIndex.search(query);
+        if (!filter.isEmpty()) {
+            try {
+                int[] filtered = attributeIndex.query(filter);
+                rows = rows == null ? filtered : intersect(rows, filtered);
+                statusLabel.setText(" ");
+            } catch (IllegalArgumentException e) {
+                statusLabel.setText(e.getMessage());
+                return;
+            }
+        }
+        searchResults.setRows(rows);
+        taskList.setModel(searchResults);
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int n = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] == b[j]) {
+                out[n++] = a[i++];
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
         }
+        return Arrays.copyOf(out, n);
+    }
+
+    private void attachSearchIndex(TaskSearchIndex index) {
+        searchIndex = index;
+        model.addListDataListener(index);
     }
 
-    private void saveTasks() {
-        try (PrintWriter pw = new PrintWriter("tasks.txt")) {
-            for (int i = 0; i < model.size(); i++) {
-                pw.println(model.get(i));
+    private File searchIndexFile() {
+        return new File("tasks.txt.search");
+    }
+
+    private void close() {
+        try {
+            if (store == null) {
+                historyWriter.shutdown();
+                historyWriter.awaitTermination(1, TimeUnit.MINUTES);
+                if (archive != null) {
+                    archive.close();
+                }
+                return;
+            }
+            store.close();
+            if (searchIndex != null) {
+                searchIndex.save(searchIndexFile(), store.fingerprint());
             }
         } catch (IOException e) {
             e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private JFileChooser transferChooser() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter("CSV or JSON Lines", "csv", "jsonl", "ndjson", "json"));
+        return chooser;
+    }
+
+    private void importTasks() {
+        if (transfer != null) {
+            transfer.cancel(false);
+            return;
+        }
+        JFileChooser chooser = transferChooser();
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+        long length = file.length();
+        transfer = new SwingWorker<Long, List<String>>() {
+            private long imported;
+
+            protected Long doInBackground() throws Exception {
+                return TaskTransfer.importRows(file, TaskTransfer.Format.of(file), this::publish,
+                        read -> setProgress(length == 0 ? 100 : (int) Math.min(100, read * 100 / length)), this::isCancelled);
+            }
+
+            protected void process(List<List<String>> batches) {
+                for (List<String> batch : batches) {
+                    int first = model.size();
+                    model.addAll(batch);
+                    if (store != null) {
+                        store.addedAll(first, batch);
+                    }
+                    imported += batch.size();
+                }
+                runSearch();
+            }
+
+            protected void done() {
+                if (isCancelled()) {
+                    finishTransfer("Import cancelled after " + imported + " tasks");
+                    return;
+                }
+                try {
+                    get();
+                    finishTransfer("Imported " + imported + " tasks");
+                } catch (Exception e) {
+                    finishTransfer("Could not import tasks: " + failure(e));
+                }
+            }
+        };
+        startTransfer(importBtn, "Importing");
+    }
+
+    private void exportTasks() {
+        if (transfer != null) {
+            transfer.cancel(false);
+            return;
+        }
+        JFileChooser chooser = transferChooser();
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
         }
+        File file = chooser.getSelectedFile();
+        transfer = new SwingWorker<Integer, Void>() {
+            protected Integer doInBackground() throws Exception {
+                TaskTransfer.Format format = TaskTransfer.Format.of(file);
+                List<String> batch = new ArrayList<>(TaskTransfer.BATCH);
+                int[] total = new int[1];
+                SwingUtilities.invokeAndWait(() -> total[0] = model.size());
+                int written = 0;
+                File tmp = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+                boolean moved = false;
+                try {
+                    try (Writer out = TaskTransfer.openExport(tmp, format)) {
+                        while (written < total[0] && !isCancelled()) {
+                            int from = written;
+                            batch.clear();
+                            SwingUtilities.invokeAndWait(() -> {
+                                for (int i = from; i < Math.min(from + TaskTransfer.BATCH, model.size()); i++) {
+                                    batch.add(model.get(i));
+                                }
+                            });
+                            if (batch.isEmpty()) {
+                                break;
+                            }
+                            for (String row : batch) {
+                                TaskTransfer.writeRow(out, format, row);
+                            }
+                            written += batch.size();
+                            setProgress((int) Math.min(100, written * 100L / total[0]));
+                        }
+                    }
+                    if (!isCancelled()) {
+                        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                        moved = true;
+                    }
+                } finally {
+                    if (!moved) {
+                        tmp.delete();
+                    }
+                }
+                return written;
+            }
+
+            protected void done() {
+                if (isCancelled()) {
+                    finishTransfer("Export cancelled");
+                    return;
+                }
+                try {
+                    finishTransfer("Exported " + get() + " tasks");
+                } catch (Exception e) {
+                    finishTransfer("Could not export tasks: " + failure(e));
+                }
+            }
+        };
+        startTransfer(exportBtn, "Exporting");
+    }
+
+    private static String failure(Exception e) {
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        return cause.getMessage() != null ? cause.getMessage() : cause.toString();
+    }
+
+    private void startTransfer(JButton active, String label) {
+        importBtn.setEnabled(active == importBtn);
+        exportBtn.setEnabled(active == exportBtn);
+        active.setText("Cancel");
+        statusLabel.setText(label + "...");
+        transfer.addPropertyChangeListener(e -> {
+            if ("progress".equals(e.getPropertyName())) {
+                statusLabel.setText(label + "... " + e.getNewValue() + "%");
+            }
+        });
+        transfer.execute();
+    }
+
+    private void finishTransfer(String message) {
+        transfer = null;
+        importBtn.setText("Import");
+        exportBtn.setText("Export");
+        importBtn.setEnabled(true);
+        exportBtn.setEnabled(true);
+        statusLabel.setText(message);
     }
 
     private void loadTasks() {
-        File file = new File("tasks.txt");
-        if (file.exists()) {
-            try (Scanner sc = new Scanner(file)) {
-                while (sc.hasNextLine()) {
-                    model.addElement(sc.nextLine());
+        if (store == null) {
+            statusLabel.setText("Loading tasks...");
+            new SwingWorker<PagedTaskListModel, Void>() {
+                private UndoHistory loaded;
+
+                protected PagedTaskListModel doInBackground() throws Exception {
+                    loaded = UndoHistory.load(historyFile, UNDO_BUDGET);
+                    return new PagedTaskListModel(archiveFile);
+                }
+
+                protected void done() {
+                    try {
+                        archive = get();
+                        if (!isDisplayable()) {
+                            archive.close();
+                            return;
+                        }
+                        model = archive;
+                        taskList.setModel(model);
+                        history = loaded;
+                        statusLabel.setText(" ");
+                        addBtn.setEnabled(true);
+                        removeBtn.setEnabled(true);
+                        doneBtn.setEnabled(true);
+                        importBtn.setEnabled(true);
+                        exportBtn.setEnabled(true);
+                    } catch (Exception e) {
+                        statusLabel.setText("Could not load tasks: " + e.getMessage());
+                    }
+                }
+            }.execute();
+            return;
+        }
+        statusLabel.setText("Loading tasks...");
+        new SwingWorker<List<String>, List<String>>() {
+            private TaskSearchIndex saved;
+            private UndoHistory loaded;
+
+            protected List<String> doInBackground() throws Exception {
+                boolean current = TaskSearchIndex.isCurrent(searchIndexFile(), store.fingerprint());
+                if (!current) {
+                    SwingUtilities.invokeAndWait(() -> attachSearchIndex(new TaskSearchIndex(model)));
+                }
+                List<String> pending = store.load(this::publish);
+                loaded = store.loadHistory(historyFile, UNDO_BUDGET);
+                if (current) {
+                    saved = TaskSearchIndex.load(searchIndexFile(), model);
+                }
+                return pending;
+            }
+
+            protected void process(List<List<String>> chunks) {
+                for (List<String> chunk : chunks) {
+                    model.addAll(chunk);
                 }
-            } catch (Exception e) {
-                e.printStackTrace();
             }
+
+            protected void done() {
+                try {
+                    List<String> pending = get();
+                    if (saved == null && searchIndex == null) {
+                        attachSearchIndex(new TaskSearchIndex(model));
+                        searchIndex.intervalAdded(new ListDataEvent(model, ListDataEvent.INTERVAL_ADDED, 0, model.size() - 1));
+                    }
+                    replay(pending);
+                    if (saved != null) {
+                        attachSearchIndex(saved);
+                    }
+                    history = loaded;
+                    store.start(history);
+                    searchInput.setEnabled(true);
+                    filterInput.setEnabled(true);
+                    doneBtn.setEnabled(true);
+                    statusLabel.setText(" ");
+                    addBtn.setEnabled(true);
+                    removeBtn.setEnabled(true);
+                    importBtn.setEnabled(true);
+                    exportBtn.setEnabled(true);
+                } catch (Exception e) {
+                    statusLabel.setText("Could not load tasks: " + e.getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    private void replay(List<String> records) {
+        for (String record : records) {
+            TaskJournal.apply(model, record);
         }
     }
 
+    private void reload(List<String> rows, List<String> unsaved) {
+        model.clear();
+        model.addAll(rows);
+        replay(unsaved);
+        runSearch();
+    }
+
     private void toggleTheme() {
         darkMode = !darkMode;
         applyTheme();
@@ -154,6 +676,9 @@ public class ToDoListApp extends JFrame {
         getContentPane().setBackground(bg);
         taskList.setBackground(bg);
         taskList.setForeground(fg);
+        for (JLabel lbl : queryLabels) {
+            lbl.setForeground(fg);
+        }
 
         taskInput.setBackground(darkMode ? new Color(60, 63, 70) : Color.WHITE);
 
@@ -166,6 +691,20 @@ public class ToDoListApp extends JFrame {
         repaint();
     }
 
+    private JPanel makeQueryRow(String label, JTextField field) {
+        JLabel lbl = new JLabel(label);
+        lbl.setFont(new Font("Segoe UI", Font.PLAIN, 16));
+        lbl.setPreferredSize(new Dimension(60, 24));
+        queryLabels.add(lbl);
+        field.setFont(new Font("Segoe UI", Font.PLAIN, 16));
+
+        JPanel row = new JPanel(new BorderLayout(10, 0));
+        row.setOpaque(false);
+        row.add(lbl, BorderLayout.WEST);
+        row.add(field, BorderLayout.CENTER);
+        return row;
+    }
+
     private JButton makeButton(String text) {
         JButton btn = new JButton(text);
         btn.setFont(new Font("Segoe UI", Font.PLAIN, 16));
@@ -229,6 +768,12 @@ public class ToDoListApp extends JFrame {
     }
 
     public static void main(String[] args) {
-        SwingUtilities.invokeLater(ToDoListApp::new);
+        SwingUtilities.invokeLater(() -> {
+            if (args.length > 0) {
+                new ToDoListApp(new File(args[0]));
+            } else {
+                new ToDoListApp();
+            }
+        });
     }
 }
@@ -0,0 +1,145 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class ToastNotifier {
+
+    private static final long SHOW_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final long LINE_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long MAX_SHOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final long MERGE_NANOS = TimeUnit.SECONDS.toNanos(2);
+    private static final int MAX_LINES = 6;
+
+    private static ToastNotifier shared;
+
+    private static class Toast {
+        final String title;
+        final List<String> lines = new ArrayList<>();
+
+        Toast(String title, String line) {
+            this.title = title;
+            lines.add(line);
+        }
+    }
+
+    private final ArrayDeque<Toast> pending = new ArrayDeque<>();
+    private final TimerWheel wheel = TimerWheel.shared();
+    private Toast showing;
+    private long shownAt;
+    private TimerWheel.Timeout hideTimeout;
+    private JWindow window;
+    private JLabel titleLabel;
+    private JLabel bodyLabel;
+
+    public static ToastNotifier shared() {
+        if (shared == null) {
+            shared = new ToastNotifier();
+        }
+        return shared;
+    }
+
+    public void notify(String title, String line) {
+        if (showing != null && showing.title.equals(title) && System.nanoTime() - shownAt < MERGE_NANOS) {
+            showing.lines.add(line);
+            display();
+            return;
+        }
+        for (Toast toast : pending) {
+            if (toast.title.equals(title)) {
+                toast.lines.add(line);
+                return;
+            }
+        }
+        pending.add(new Toast(title, line));
+        if (showing == null) {
+            showNext();
+        }
+    }
+
+    private void showNext() {
+        showing = pending.poll();
+        if (showing == null) {
+            if (window != null) {
+                window.setVisible(false);
+            }
+            return;
+        }
+        Toolkit.getDefaultToolkit().beep();
+        shownAt = System.nanoTime();
+        display();
+    }
+
+    private void display() {
+        if (hideTimeout != null) {
+            wheel.cancel(hideTimeout);
+        }
+        long showFor = Math.min(MAX_SHOW_NANOS, SHOW_NANOS + (showing.lines.size() - 1) * LINE_NANOS);
+        TimerWheel.Timeout[] scheduled = new TimerWheel.Timeout[1];
+        scheduled[0] = wheel.schedule("Toast", System.nanoTime() + showFor, () -> {
+            if (hideTimeout == scheduled[0]) {
+                dismiss();
+            }
+        });
+        hideTimeout = scheduled[0];
+        if (window == null) {
+            createWindow();
+        }
+        titleLabel.setText(showing.lines.size() > 1 ? showing.title + " (" + showing.lines.size() + ")" : showing.title);
+        StringBuilder body = new StringBuilder("<html>");
+        int shown = Math.min(MAX_LINES, showing.lines.size());
+        for (int i = 0; i < shown; i++) {
+            body.append(i > 0 ? "<br>" : "").append(escape(showing.lines.get(i)));
+        }
+        if (showing.lines.size() > shown) {
+            body.append("<br>… and ").append(showing.lines.size() - shown).append(" more");
+        }
+        bodyLabel.setText(body.append("</html>").toString());
+        window.pack();
+        Rectangle screen = GraphicsEnvironment.getLocalGraphicsEnvironment().getMaximumWindowBounds();
+        window.setLocation(screen.x + screen.width - window.getWidth() - 20, screen.y + screen.height - window.getHeight() - 20);
+        window.setVisible(true);
+    }
+
+    private void dismiss() {
+        hideTimeout = null;
+        showing = null;
+        showNext();
+    }
+
+    private void createWindow() {
+        window = new JWindow();
+        window.setAlwaysOnTop(true);
+        window.setFocusableWindowState(false);
+        JPanel panel = new JPanel(new BorderLayout(0, 6));
+        panel.setBackground(new Color(50, 54, 61));
+        panel.setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createLineBorder(new Color(100, 149, 237), 2),
+                BorderFactory.createEmptyBorder(12, 16, 12, 16)));
+        titleLabel = new JLabel();
+        titleLabel.setFont(new Font("Segoe UI Semibold", Font.BOLD, 16));
+        titleLabel.setForeground(Color.WHITE);
+        bodyLabel = new JLabel();
+        bodyLabel.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        bodyLabel.setForeground(new Color(220, 220, 220));
+        panel.add(titleLabel, BorderLayout.NORTH);
+        panel.add(bodyLabel, BorderLayout.CENTER);
+        panel.addMouseListener(new MouseAdapter() {
+            public void mouseClicked(MouseEvent e) {
+                if (hideTimeout != null) {
+                    wheel.cancel(hideTimeout);
+                }
+                dismiss();
+            }
+        });
+        window.setContentPane(panel);
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
@@ -0,0 +1,155 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+public class UndoHistory {
+
+    public static final long DEFAULT_BUDGET = 256 * 1024;
+
+    private static final int ENTRY_OVERHEAD = 64;
+    private static final int COMPACT_FACTOR = 4;
+
+    private final File file;
+    private final long budget;
+    private final Deque<String> undo = new ArrayDeque<>();
+    private final Deque<String> redo = new ArrayDeque<>();
+    private final List<String> unwritten = new ArrayList<>();
+    private long bytes;
+
+    public UndoHistory(File file, long budget) {
+        this.file = file;
+        this.budget = budget;
+    }
+
+    public void record(String record) {
+        recorded(record);
+        unwritten.add("r\t" + record);
+    }
+
+    private void recorded(String record) {
+        while (!redo.isEmpty()) {
+            bytes -= cost(redo.pollLast());
+        }
+        push(undo, record);
+        trim();
+    }
+
+    private void trim() {
+        while (bytes > budget && !undo.isEmpty()) {
+            bytes -= cost(undo.pollFirst());
+        }
+        while (bytes > budget && !redo.isEmpty()) {
+            bytes -= cost(redo.pollFirst());
+        }
+    }
+
+    public String undo() {
+        String record = undo.pollLast();
+        if (record == null) {
+            return null;
+        }
+        redo.addLast(record);
+        unwritten.add("u\t" + record);
+        return TaskJournal.inverseRecord(record);
+    }
+
+    public String redo() {
+        String record = redo.pollLast();
+        if (record == null) {
+            return null;
+        }
+        undo.addLast(record);
+        unwritten.add("y\t" + record);
+        return record;
+    }
+
+    public List<String> drain() {
+        List<String> lines = new ArrayList<>(unwritten);
+        unwritten.clear();
+        return lines;
+    }
+
+    private void replay(String line) {
+        if (line.length() < 2 || line.charAt(1) != '\t') {
+            return;
+        }
+        String record = line.substring(2);
+        switch (line.charAt(0)) {
+            case 'r':
+                recorded(record);
+                break;
+            case 'u':
+                if (undo.removeLastOccurrence(record)) {
+                    redo.addLast(record);
+                }
+                break;
+            case 'y':
+                if (redo.removeLastOccurrence(record)) {
+                    undo.addLast(record);
+                }
+                break;
+        }
+    }
+
+    private void push(Deque<String> stack, String record) {
+        stack.addLast(record);
+        bytes += cost(record);
+    }
+
+    private static long cost(String record) {
+        return ENTRY_OVERHEAD + 2L * record.length();
+    }
+
+    public void write(List<String> lines) throws IOException {
+        if (lines.isEmpty()) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String line : lines) {
+            sb.append(line).append('\n');
+        }
+        try (OutputStream out = new FileOutputStream(file, true)) {
+            out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        if (file.length() > COMPACT_FACTOR * budget) {
+            UndoHistory current = load(file, budget);
+            Path tmp = Files.createTempFile(file.getAbsoluteFile().toPath().getParent(), file.getName(), ".tmp");
+            try (Writer out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                for (String record : current.undo) {
+                    out.write("r\t" + record + "\n");
+                }
+                for (Iterator<String> it = current.redo.descendingIterator(); it.hasNext(); ) {
+                    out.write("r\t" + it.next() + "\n");
+                }
+                for (String record : current.redo) {
+                    out.write("u\t" + record + "\n");
+                }
+            }
+            Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    public static UndoHistory load(File file, long budget) {
+        UndoHistory history = new UndoHistory(file, budget);
+        if (!file.exists()) {
+            return history;
+        }
+        try {
+            TaskJournal.readLines(file.toPath(), TaskJournal.LOAD_CHUNK, lines -> {
+                for (String line : lines) {
+                    history.replay(line);
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            return new UndoHistory(file, budget);
+        }
+        return history;
+    }
+}
@@ -0,0 +1,246 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.format.TextStyle;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+public class YearView extends JComponent {
+
+    public interface DensitySource {
+        void load(long fromDay, long toDay, int[] counts);
+    }
+
+    public interface DateListener {
+        void dateClicked(LocalDate date);
+    }
+
+    private static final String[] DAY_LETTERS = {"S", "M", "T", "W", "T", "F", "S"};
+    private static final String[] DAY_NUMBERS = new String[32];
+    private static final String[] MONTH_NAMES = new String[12];
+    private static final int HEAT_LEVELS = 5;
+    private static final int CACHED_RANGES = 8;
+    private static final Font TITLE_FONT = new Font("Segoe UI", Font.BOLD, 14);
+    private static final Font DAY_FONT = new Font("Segoe UI", Font.PLAIN, 11);
+    private static final Color TODAY = new Color(231, 76, 60);
+    private static final Color DARK_BACKGROUND = new Color(40, 44, 52);
+    private static final Color[] DARK_HEAT = heat(new Color(50, 50, 50));
+    private static final Color[] LIGHT_HEAT = heat(Color.WHITE);
+
+    static {
+        for (int i = 1; i < DAY_NUMBERS.length; i++) {
+            DAY_NUMBERS[i] = String.valueOf(i);
+        }
+        for (int i = 0; i < 12; i++) {
+            MONTH_NAMES[i] = Month.of(i + 1).getDisplayName(TextStyle.FULL, Locale.getDefault());
+        }
+    }
+
+    private final DensitySource source;
+    private final Executor loader;
+    private final Set<Long> loading = new HashSet<>();
+    private int version;
+    private final Map<Long, int[]> densities = new LinkedHashMap<Long, int[]>(16, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry<Long, int[]> eldest) {
+            return size() > CACHED_RANGES;
+        }
+    };
+    private LocalDate firstMonth = LocalDate.now().withDayOfMonth(1);
+    private int months = 12;
+    private boolean darkMode = true;
+
+    public YearView(DensitySource source, Executor loader, DateListener listener) {
+        this.source = source;
+        this.loader = loader;
+        setOpaque(true);
+        addMouseListener(new MouseAdapter() {
+            public void mouseClicked(MouseEvent e) {
+                LocalDate date = dateAt(e.getX(), e.getY());
+                if (date != null) {
+                    listener.dateClicked(date);
+                }
+            }
+        });
+    }
+
+    private static Color[] heat(Color empty) {
+        Color full = new Color(41, 128, 185);
+        Color[] levels = new Color[HEAT_LEVELS];
+        for (int i = 0; i < HEAT_LEVELS; i++) {
+            float t = i / (float) (HEAT_LEVELS - 1);
+            levels[i] = new Color(
+                    Math.round(empty.getRed() + (full.getRed() - empty.getRed()) * t),
+                    Math.round(empty.getGreen() + (full.getGreen() - empty.getGreen()) * t),
+                    Math.round(empty.getBlue() + (full.getBlue() - empty.getBlue()) * t));
+        }
+        return levels;
+    }
+
+    public void setRange(LocalDate firstMonth, int months) {
+        this.firstMonth = firstMonth.withDayOfMonth(1);
+        this.months = months;
+        prefetch();
+        repaint();
+    }
+
+    public void setDarkMode(boolean darkMode) {
+        this.darkMode = darkMode;
+        repaint();
+    }
+
+    public void invalidateDensity() {
+        version++;
+        densities.clear();
+        if (isShowing()) {
+            prefetch();
+            repaint();
+        }
+    }
+
+    private int columns() {
+        return months >= 12 ? 4 : months;
+    }
+
+    private int rows() {
+        return (months + columns() - 1) / columns();
+    }
+
+    private static long key(LocalDate first, int months) {
+        return first.toEpochDay() * 16 + months;
+    }
+
+    private void prefetch() {
+        request(firstMonth, months);
+        request(firstMonth.minusMonths(months), months);
+        request(firstMonth.plusMonths(months), months);
+    }
+
+    private void request(LocalDate first, int months) {
+        long key = key(first, months);
+        if (densities.containsKey(key) || !loading.add(key)) {
+            return;
+        }
+        int requested = version;
+        loader.execute(() -> {
+            int[] loaded = null;
+            try {
+                long from = first.toEpochDay();
+                long to = first.plusMonths(months).toEpochDay() - 1;
+                int[] counts = new int[(int) (to - from + 1)];
+                source.load(from, to, counts);
+                loaded = counts;
+            } finally {
+                int[] counts = loaded;
+                SwingUtilities.invokeLater(() -> {
+                    loading.remove(key);
+                    if (counts != null) {
+                        if (requested == version) {
+                            densities.put(key, counts);
+                        }
+                        repaint();
+                    }
+                });
+            }
+        });
+    }
+
+    private int[] density() {
+        int[] counts = densities.get(key(firstMonth, months));
+        if (counts == null) {
+            request(firstMonth, months);
+        }
+        return counts;
+    }
+
+    public LocalDate dateAt(int x, int y) {
+        int monthW = getWidth() / columns();
+        int monthH = getHeight() / rows();
+        if (monthW <= 0 || monthH <= 0 || x < 0 || y < 0) {
+            return null;
+        }
+        int col = x / monthW;
+        int row = y / monthH;
+        int index = row * columns() + col;
+        int cellW = monthW / 7;
+        int cellH = monthH / 8;
+        if (col >= columns() || index >= months || cellW == 0 || cellH == 0) {
+            return null;
+        }
+        int week = (y - row * monthH) / cellH - 2;
+        int weekday = (x - col * monthW) / cellW;
+        if (week < 0 || week > 5 || weekday > 6) {
+            return null;
+        }
+        LocalDate first = firstMonth.plusMonths(index);
+        int day = week * 7 + weekday - first.getDayOfWeek().getValue() % 7 + 1;
+        if (day < 1 || day > first.lengthOfMonth()) {
+            return null;
+        }
+        return first.withDayOfMonth(day);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g;
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        Color background = darkMode ? DARK_BACKGROUND : Color.LIGHT_GRAY;
+        Color text = darkMode ? Color.WHITE : Color.BLACK;
+        Color[] heat = darkMode ? DARK_HEAT : LIGHT_HEAT;
+        g2.setColor(background);
+        g2.fillRect(0, 0, getWidth(), getHeight());
+
+        int[] counts = density();
+        long rangeStart = firstMonth.toEpochDay();
+        long today = LocalDate.now().toEpochDay();
+        int monthW = getWidth() / columns();
+        int monthH = getHeight() / rows();
+        int cellW = monthW / 7;
+        int cellH = monthH / 8;
+        Rectangle clip = g2.getClipBounds();
+        FontMetrics titleMetrics = g2.getFontMetrics(TITLE_FONT);
+        FontMetrics dayMetrics = g2.getFontMetrics(DAY_FONT);
+
+        for (int index = 0; index < months; index++) {
+            int left = index % columns() * monthW;
+            int top = index / columns() * monthH;
+            if (clip != null && !clip.intersects(left, top, monthW, monthH)) {
+                continue;
+            }
+            LocalDate first = firstMonth.plusMonths(index);
+            int offset = first.getDayOfWeek().getValue() % 7;
+            int length = first.lengthOfMonth();
+            long firstDay = first.toEpochDay();
+
+            g2.setColor(text);
+            g2.setFont(TITLE_FONT);
+            String title = MONTH_NAMES[first.getMonthValue() - 1];
+            g2.drawString(title, left + (7 * cellW - titleMetrics.stringWidth(title)) / 2,
+                    top + (cellH + titleMetrics.getAscent()) / 2);
+            g2.setFont(DAY_FONT);
+            int baseline = (cellH + dayMetrics.getAscent() - dayMetrics.getDescent()) / 2;
+            for (int d = 0; d < 7; d++) {
+                g2.drawString(DAY_LETTERS[d], left + d * cellW + (cellW - dayMetrics.stringWidth(DAY_LETTERS[d])) / 2,
+                        top + cellH + baseline);
+            }
+
+            for (int day = 1; day <= length; day++) {
+                int cell = offset + day - 1;
+                int x = left + cell % 7 * cellW;
+                int y = top + (cell / 7 + 2) * cellH;
+                long epochDay = firstDay + day - 1;
+                int count = counts == null ? 0 : counts[(int) (epochDay - rangeStart)];
+                g2.setColor(epochDay == today ? TODAY : heat[Math.min(count, HEAT_LEVELS - 1)]);
+                g2.fillRect(x + 1, y + 1, cellW - 2, cellH - 2);
+                g2.setColor(epochDay == today || count >= HEAT_LEVELS / 2 ? Color.WHITE : text);
+                g2.drawString(DAY_NUMBERS[day], x + (cellW - dayMetrics.stringWidth(DAY_NUMBERS[day])) / 2, y + baseline);
+            }
+        }
+    }
+}